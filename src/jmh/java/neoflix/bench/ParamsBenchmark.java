@@ -0,0 +1,44 @@
+package neoflix.bench;
+
+import neoflix.FakeRequests;
+import neoflix.Params;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import spark.Request;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the list query parameters, with and without a cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParamsBenchmark {
+
+    private Request skip;
+    private Request cursor;
+
+    @Setup
+    public void setUp() {
+        skip = FakeRequests.withQuery(Map.of("sort", "imdbRating", "order", "DESC", "limit", "20", "skip", "40"));
+        var after = new Params.Cursor("imdbRating", 8.7, "769").encode();
+        cursor = FakeRequests.withQuery(Map.of("sort", "imdbRating", "order", "DESC", "limit", "20", "after", after));
+    }
+
+    @Benchmark
+    public Params skip() {
+        return Params.parse(skip, Params.MOVIE_SORT);
+    }
+
+    @Benchmark
+    public Params cursor() {
+        return Params.parse(cursor, Params.MOVIE_SORT);
+    }
+}
@@ -0,0 +1,38 @@
+package neoflix.bench;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import neoflix.AuthUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking a password against hashes of different costs, through the bcrypt executor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordBenchmark {
+
+    @Param({"4", "8", "10", "12"})
+    public int cost;
+
+    private String hashed;
+
+    @Setup
+    public void setUp() {
+        hashed = BCrypt.withDefaults().hashToString(cost, "letmein".toCharArray());
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return AuthUtils.verifyPassword("letmein", hashed);
+    }
+}
@@ -0,0 +1,37 @@
+package neoflix.bench;
+
+import neoflix.AppUtils;
+import neoflix.Params;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting and paging the fixture lists in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProcessBenchmark {
+
+    private List<Map<String, Object>> popular;
+    private final Params params = new Params(null, Params.Sort.imdbRating, Params.Order.DESC, 6, 12);
+
+    @Setup
+    public void setUp() {
+        popular = AppUtils.loadFixtureList("popular");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> process() {
+        return AppUtils.process(popular, params);
+    }
+}
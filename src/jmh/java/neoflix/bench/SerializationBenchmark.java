@@ -0,0 +1,40 @@
+package neoflix.bench;
+
+import neoflix.AppUtils;
+import neoflix.GsonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a page of movies from the fixtures with the shared Gson, as the routes do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({"popular", "comedy_movies"})
+    public String fixture;
+
+    private List<Map<String, Object>> maps;
+
+    @Setup
+    public void setUp() {
+        maps = AppUtils.loadFixtureList(fixture);
+    }
+
+    @Benchmark
+    public String maps() {
+        return GsonUtils.gson().toJson(maps);
+    }
+}
@@ -0,0 +1,69 @@
+package neoflix.bench;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import neoflix.AuthUtils;
+import neoflix.TokenVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing and verifying JWT tokens. `verifyRebuilt` is what every request used to pay before
+ * the verifier was reused and verified tokens were cached. `verifyCached` and `verifyUncached`
+ * compare a verifier with and without its cache with several threads verifying at once, the way
+ * concurrent requests do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenBenchmark {
+
+    private static final String SECRET = "secret";
+
+    private String token;
+    private TokenVerifier cached;
+    private TokenVerifier uncached;
+
+    @Setup
+    public void setUp() {
+        token = AuthUtils.sign("1", Map.of("sub", "1", "userId", "1", "name", "GraphAcademy User"), SECRET);
+        cached = new TokenVerifier(SECRET, 10_000, System::currentTimeMillis);
+        uncached = new TokenVerifier(SECRET, 0, System::currentTimeMillis);
+    }
+
+    @Benchmark
+    public String sign() {
+        return AuthUtils.sign("1", Map.of("sub", "1", "userId", "1", "name", "GraphAcademy User"), SECRET);
+    }
+
+    @Benchmark
+    public String verify() {
+        return AuthUtils.verify(token, SECRET);
+    }
+
+    @Benchmark
+    public String verifyRebuilt() {
+        return JWT.require(Algorithm.HMAC256(SECRET)).withIssuer("auth0").build().verify(token).getSubject();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String verifyCached() {
+        return cached.verify(token);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String verifyUncached() {
+        return uncached.verify(token);
+    }
+}
@@ -0,0 +1,179 @@
+package neoflix.load;
+
+import neoflix.GsonUtils;
+import neoflix.NeoflixApp;
+import spark.Spark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load test of the API.
+ *
+ * Requests are sent at a fixed rate regardless of how fast the server answers: the schedule
+ * says when every request should start, and `LOAD_USERS` virtual user threads take the next
+ * scheduled request as soon as they are free. Latencies are measured from the scheduled start,
+ * and the rate the server achieved is reported next to the offered one, see {@link LoadReport}.
+ * Arrivals are evenly spaced, or exponentially distributed with `LOAD_ARRIVALS=poisson`.
+ *
+ * Without `LOAD_TARGET` the app is started in this JVM with `SERVICE_BACKEND=fixtures` on a free
+ * port, so the test needs no database. Settings are system properties or `KEY=VALUE` arguments:
+ *
+ * <pre>
+ * LOAD_RATE=200                 requests per second
+ * LOAD_USERS=32                 virtual user threads, each registers its own account
+ * LOAD_WARMUP_SECONDS=10        load before measuring
+ * LOAD_DURATION_SECONDS=60      measured load
+ * LOAD_ARRIVALS=uniform         or poisson
+ * LOAD_MIX=                     weight overrides, e.g. login=0,movie=30
+ * LOAD_SEED=42
+ * LOAD_RESULT=target/load-result.json
+ * </pre>
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        for (var arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) System.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        double rate = Double.parseDouble(System.getProperty("LOAD_RATE", "200"));
+        int users = Integer.parseInt(System.getProperty("LOAD_USERS", "32"));
+        long warmupSeconds = Long.parseLong(System.getProperty("LOAD_WARMUP_SECONDS", "10"));
+        long durationSeconds = Long.parseLong(System.getProperty("LOAD_DURATION_SECONDS", "60"));
+        boolean poisson = "poisson".equalsIgnoreCase(System.getProperty("LOAD_ARRIVALS", "uniform"));
+        long seed = Long.parseLong(System.getProperty("LOAD_SEED", "42"));
+        var result = Path.of(System.getProperty("LOAD_RESULT", "target/load-result.json"));
+
+        String target = System.getProperty("LOAD_TARGET");
+        if (target == null || target.isBlank()) target = startApp();
+
+        var workload = new Workload(target, System.getProperty("LOAD_MIX"));
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        var accounts = new ArrayList<Workload.User>();
+        for (int i = 0; i < users; i++) {
+            var user = new Workload.User("load-" + UUID.randomUUID() + "@example.com", "load-" + i);
+            var response = client.send(workload.register(user), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Could not register " + user.email + ": " + response.body());
+            }
+            user.token = (String) GsonUtils.gson().fromJson(response.body(), Map.class).get("token");
+            accounts.add(user);
+        }
+
+        System.out.printf("Load test of %s: %.0f requests/s from %d virtual users, %d s warm-up, %d s measured%n",
+                target, rate, users, warmupSeconds, durationSeconds);
+        long start = System.nanoTime() + 100_000_000L;
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + durationSeconds * 1_000_000_000L;
+        var schedule = new Schedule(start, rate, poisson, seed);
+        var report = new LoadReport(measureFrom);
+
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < users; i++) {
+            var user = accounts.get(i);
+            var random = new Random(seed + i);
+            var thread = new Thread(() -> run(client, workload, schedule, user, random, measureFrom, end, report),
+                    "load-user-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        double seconds = durationSeconds;
+        report.print(System.out, seconds);
+        var config = new LinkedHashMap<String, Object>();
+        config.put("rate", rate);
+        config.put("users", users);
+        config.put("warmupSeconds", warmupSeconds);
+        config.put("durationSeconds", durationSeconds);
+        config.put("arrivals", poisson ? "poisson" : "uniform");
+        config.put("seed", seed);
+        var weights = new LinkedHashMap<String, Integer>();
+        workload.endpoints().forEach(endpoint -> weights.put(endpoint.name(), endpoint.weight()));
+        config.put("mix", weights);
+        report.write(result, config, seconds);
+        System.out.printf("Results written to %s%n", result);
+        System.exit(0);
+    }
+
+    private static void run(HttpClient client, Workload workload, Schedule schedule, Workload.User user,
+                            Random random, long measureFrom, long end, LoadReport report) {
+        while (true) {
+            long scheduled = schedule.next();
+            if (scheduled >= end) return;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            var endpoint = workload.next(random);
+            long sent = System.nanoTime();
+            boolean error;
+            try {
+                var response = client.send(endpoint.request().apply(user, random).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                error = response.statusCode() >= 400;
+            } catch (IOException e) {
+                error = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long done = System.nanoTime();
+            if (scheduled >= measureFrom) {
+                report.record(endpoint.name(), done, done - scheduled, done - sent, error);
+            }
+        }
+    }
+
+    /**
+     * Start the app in this JVM on the fixtures.
+     *
+     * @return the base URL of the app
+     */
+    private static String startApp() throws Exception {
+        int port;
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        System.setProperty("APP_PORT", String.valueOf(port));
+        if (System.getProperty("SERVICE_BACKEND") == null) System.setProperty("SERVICE_BACKEND", "fixtures");
+        if (System.getProperty("JWT_SECRET") == null) System.setProperty("JWT_SECRET", "secret");
+        NeoflixApp.main(new String[0]);
+        Spark.awaitInitialization();
+        return "http://localhost:" + port;
+    }
+
+    /**
+     * The intended start times of the requests, shared by all virtual users.
+     */
+    static final class Schedule {
+        private final double intervalNanos;
+        private final boolean poisson;
+        private final Random random;
+        private double next;
+
+        Schedule(long start, double rate, boolean poisson, long seed) {
+            this.intervalNanos = 1e9 / rate;
+            this.poisson = poisson;
+            this.random = new Random(seed);
+            this.next = start;
+        }
+
+        synchronized long next() {
+            long scheduled = (long) next;
+            next += poisson ? -Math.log(1 - random.nextDouble()) * intervalNanos : intervalNanos;
+            return scheduled;
+        }
+    }
+}
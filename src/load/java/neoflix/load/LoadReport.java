@@ -0,0 +1,135 @@
+package neoflix.load;
+
+import com.google.gson.GsonBuilder;
+import neoflix.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results of a load test per endpoint.
+ *
+ * Every request records two durations. The latency runs from the moment the request was
+ * scheduled to be sent until the response was read, so time spent waiting for a free virtual
+ * user counts: this corrects for coordinated omission, a slow server can't hide its stalls by
+ * delaying the requests that would have observed them. The service time runs from the moment
+ * the request was actually sent, it is what a closed-loop client would report.
+ *
+ * Two rates are reported. The offered rate counts the measured requests over the configured
+ * duration, it is the rate the schedule asked for. The achieved rate divides the same requests
+ * by the time from the start of the measurement to the last response, so a server that falls
+ * behind and drains its backlog after the schedule ended reports less than it was offered.
+ */
+final class LoadReport {
+
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1.0};
+    static final String[] LABELS = {"p50", "p90", "p99", "p99.9", "max"};
+
+    static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram service = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private final Map<String, Stats> endpoints = new ConcurrentHashMap<>();
+    private final long measureFrom;
+    private final LongAccumulator lastDone;
+
+    /**
+     * @param measureFrom nano time the measurement starts at
+     */
+    LoadReport(long measureFrom) {
+        this.measureFrom = measureFrom;
+        this.lastDone = new LongAccumulator(Math::max, measureFrom);
+    }
+
+    /**
+     * @param done nano time the response was read
+     */
+    void record(String endpoint, long done, long latencyNanos, long serviceNanos, boolean error) {
+        lastDone.accumulate(done);
+        var stats = endpoints.computeIfAbsent(endpoint, k -> new Stats());
+        stats.latency.record(latencyNanos);
+        stats.service.record(serviceNanos);
+        if (error) stats.errors.increment();
+    }
+
+    /**
+     * @return seconds from the start of the measurement to the last response
+     */
+    double achievedSeconds() {
+        return (lastDone.get() - measureFrom) / 1e9;
+    }
+
+    /**
+     * @param seconds the configured duration of the measurement
+     */
+    void print(PrintStream out, double seconds) {
+        double achieved = achievedSeconds();
+        out.printf("%-18s %8s %7s %9s %10s %9s %9s %9s %9s %9s %11s%n", "endpoint", "requests", "errors",
+                "offered/s", "achieved/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        long totalErrors = 0;
+        for (var entry : new TreeMap<>(endpoints).entrySet()) {
+            var stats = entry.getValue();
+            printRow(out, entry.getKey(), stats, seconds, achieved);
+            totalErrors += stats.errors.sum();
+        }
+        long requests = endpoints.values().stream().mapToLong(s -> s.latency.count()).sum();
+        out.printf("%-18s %8d %7d %9.1f %10.1f%n", "total", requests, totalErrors, requests / seconds,
+                rate(requests, achieved));
+        out.printf("last response %.1f s after the start of the %.0f s measurement%n", achieved, seconds);
+    }
+
+    private static void printRow(PrintStream out, String name, Stats stats, double seconds, double achieved) {
+        out.printf("%-18s %8d %7d %9.1f %10.1f", name, stats.latency.count(), stats.errors.sum(),
+                stats.latency.count() / seconds, rate(stats.latency.count(), achieved));
+        for (double quantile : QUANTILES) {
+            out.printf(" %9.2f", stats.latency.percentile(quantile) / 1e6);
+        }
+        out.printf(" %11.2f%n", stats.service.percentile(0.99) / 1e6);
+    }
+
+    /**
+     * Write the configuration and the results as JSON, so runs of different releases under the
+     * same load can be compared.
+     */
+    void write(Path file, Map<String, Object> config, double seconds) throws IOException {
+        double achieved = achievedSeconds();
+        var results = new LinkedHashMap<String, Object>();
+        for (var entry : new TreeMap<>(endpoints).entrySet()) {
+            var stats = entry.getValue();
+            var result = new LinkedHashMap<String, Object>();
+            result.put("requests", stats.latency.count());
+            result.put("errors", stats.errors.sum());
+            result.put("offeredRate", stats.latency.count() / seconds);
+            result.put("achievedRate", rate(stats.latency.count(), achieved));
+            result.put("latencyMillis", percentiles(stats.latency));
+            result.put("serviceMillis", percentiles(stats.service));
+            results.put(entry.getKey(), result);
+        }
+        var json = new GsonBuilder().setPrettyPrinting().create()
+                .toJson(Map.of("config", config, "seconds", seconds, "achievedSeconds", achieved, "endpoints", results));
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        Files.writeString(file, json);
+    }
+
+    private static double rate(long requests, double seconds) {
+        return seconds > 0 ? requests / seconds : 0;
+    }
+
+    private static Map<String, Double> percentiles(LatencyHistogram histogram) {
+        var percentiles = new LinkedHashMap<String, Double>();
+        for (int i = 0; i < QUANTILES.length; i++) {
+            percentiles.put(LABELS[i], histogram.percentile(QUANTILES[i]) / 1e6);
+        }
+        return percentiles;
+    }
+}
@@ -0,0 +1,196 @@
+package neoflix.load;
+
+import neoflix.AppUtils;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * The weighted mix of API requests the load generator replays.
+ *
+ * Movie ids, genres and people are sampled from the fixtures, so every request finds its data
+ * when the app runs with `SERVICE_BACKEND=fixtures`. The weights can be overridden with
+ * `LOAD_MIX`, e.g. `LOAD_MIX=login=0,movie=30`.
+ */
+final class Workload {
+
+    /**
+     * @param name    the name the endpoint is reported under
+     * @param weight  relative share of the requests
+     * @param request builds the next request for a virtual user
+     */
+    record Endpoint(String name, int weight, BiFunction<User, Random, HttpRequest.Builder> request) {
+    }
+
+    /**
+     * A registered account, each virtual user thread has its own.
+     */
+    static final class User {
+        final String email;
+        final String password;
+        String token;
+        final Set<String> favorites = new HashSet<>();
+
+        User(String email, String password) {
+            this.email = email;
+            this.password = password;
+        }
+    }
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final List<String> movieIds = new ArrayList<>();
+    private final List<String> genres = new ArrayList<>();
+    private final List<String> peopleIds = new ArrayList<>();
+    private final List<String> searchTerms = new ArrayList<>();
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    Workload(String baseUrl, String mix) {
+        this.baseUrl = baseUrl;
+        for (var name : List.of("popular", "latest", "acted_in_tom_hanks", "directed_by_coppola", "comedy_movies")) {
+            for (var movie : AppUtils.loadFixtureList(name)) {
+                var id = (String) movie.get("tmdbId");
+                if (!movieIds.contains(id)) movieIds.add(id);
+                addSearchTerm((String) movie.get("title"));
+            }
+        }
+        for (var genre : AppUtils.loadFixtureList("genres")) {
+            genres.add((String) genre.get("name"));
+        }
+        for (var person : AppUtils.loadFixtureList("people")) {
+            peopleIds.add((String) person.get("tmdbId"));
+            addSearchTerm((String) person.get("name"));
+        }
+
+        var weights = weights(mix);
+        add(weights, "movies.title", 10, (user, random) -> get(user, "/api/movies?sort=title&limit=6&skip=" + skip(random)));
+        add(weights, "movies.released", 5, (user, random) -> get(user, "/api/movies?sort=released&order=DESC&limit=6&skip=" + skip(random)));
+        add(weights, "movies.imdbRating", 10, (user, random) -> get(user, "/api/movies?sort=imdbRating&order=DESC&limit=6&skip=" + skip(random)));
+        add(weights, "movies.search", 5, (user, random) -> get(user, "/api/movies?q=" + encode(pick(searchTerms, random))));
+        add(weights, "movie", 15, (user, random) -> get(user, "/api/movies/" + pick(movieIds, random)));
+        add(weights, "movie.similar", 8, (user, random) -> get(user, "/api/movies/" + pick(movieIds, random) + "/similar"));
+        add(weights, "movie.ratings", 4, (user, random) -> get(user, "/api/movies/" + pick(movieIds, random) + "/ratings"));
+        add(weights, "genres", 4, (user, random) -> get(user, "/api/genres"));
+        add(weights, "genre.movies", 8, (user, random) -> get(user, "/api/genres/" + encode(pick(genres, random)) + "/movies"));
+        add(weights, "people.search", 6, (user, random) -> get(user, "/api/people?q=" + encode(pick(searchTerms, random))));
+        add(weights, "person", 5, (user, random) -> get(user, "/api/people/" + pick(peopleIds, random)));
+        add(weights, "favorites", 4, (user, random) -> get(user, "/api/account/favorites"));
+        add(weights, "favorites.toggle", 6, this::toggleFavorite);
+        add(weights, "rating", 4, (user, random) -> request(user, "/api/account/ratings/" + pick(movieIds, random))
+                .POST(HttpRequest.BodyPublishers.ofString(String.valueOf(1 + random.nextInt(5)))));
+        add(weights, "login", 1, (user, random) -> request(null, "/api/auth/login")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials(user, null))));
+        if (!weights.isEmpty()) {
+            throw new IllegalArgumentException("Unknown endpoints in LOAD_MIX: " + weights.keySet());
+        }
+
+        cumulativeWeights = new int[endpoints.size()];
+        int total = 0;
+        for (int i = 0; i < endpoints.size(); i++) {
+            total += endpoints.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) throw new IllegalArgumentException("LOAD_MIX leaves no endpoint with a weight");
+        totalWeight = total;
+    }
+
+    List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return an endpoint drawn according to the weights
+     */
+    Endpoint next(Random random) {
+        int draw = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) return endpoints.get(i);
+        }
+        throw new IllegalStateException("Weight " + draw + " out of range");
+    }
+
+    HttpRequest register(User user) {
+        return request(null, "/api/auth/register")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials(user, "Load Test User")))
+                .build();
+    }
+
+    private HttpRequest.Builder toggleFavorite(User user, Random random) {
+        var id = pick(movieIds, random);
+        // the user's favorites are only touched by its own thread
+        if (user.favorites.remove(id)) {
+            return request(user, "/api/account/favorites/" + id).DELETE();
+        }
+        user.favorites.add(id);
+        return request(user, "/api/account/favorites/" + id).POST(HttpRequest.BodyPublishers.noBody());
+    }
+
+    private void add(Map<String, Integer> overrides, String name, int weight,
+                     BiFunction<User, Random, HttpRequest.Builder> request) {
+        var override = overrides.remove(name);
+        endpoints.add(new Endpoint(name, override != null ? override : weight, request));
+    }
+
+    private HttpRequest.Builder get(User user, String path) {
+        return request(user, path).GET();
+    }
+
+    private HttpRequest.Builder request(User user, String path) {
+        var builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT);
+        if (user != null && user.token != null) builder.header("Authorization", "Bearer " + user.token);
+        return builder;
+    }
+
+    private void addSearchTerm(String text) {
+        if (text == null) return;
+        for (var word : text.trim().split("\\W+")) {
+            // typeahead input, the first letters of a word
+            if (word.length() >= 3) searchTerms.add(word.substring(0, 3).toLowerCase());
+        }
+    }
+
+    private static int skip(Random random) {
+        return 6 * random.nextInt(4);
+    }
+
+    private static String pick(List<String> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String credentials(User user, String name) {
+        var body = new LinkedHashMap<String, String>();
+        body.put("email", user.email);
+        body.put("password", user.password);
+        if (name != null) body.put("name", name);
+        return neoflix.GsonUtils.gson().toJson(body);
+    }
+
+    private static Map<String, Integer> weights(String mix) {
+        var weights = new LinkedHashMap<String, Integer>();
+        if (mix == null || mix.isBlank()) return weights;
+        for (var entry : mix.split(",")) {
+            var parts = entry.split("=");
+            if (parts.length != 2) throw new IllegalArgumentException("LOAD_MIX entries are name=weight: " + entry);
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -3,14 +3,17 @@ package neoflix;
 import com.google.gson.Gson;
 import org.neo4j.driver.AuthToken;
 import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
 import spark.Request;
+import spark.Response;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 public class AppUtils {
@@ -23,6 +26,21 @@ public class AppUtils {
         }
     }
 
+    /**
+     * Announce the cursor of the page after this one in the `X-Next-Cursor` header, clients pass
+     * it back as the `after` query parameter. No header is set on the last page.
+     *
+     * @param field  the sort key of the list
+     * @param idPath the unique id of a row, e.g. `tmdbId`
+     * @return the unchanged page
+     */
+    public static List<Map<String, Object>> withNextCursor(Response res, Params params,
+                                                           List<Map<String, Object>> page, String field, String idPath) {
+        var cursor = params.nextCursor(page, field, idPath);
+        if (cursor != null) res.header("X-Next-Cursor", cursor);
+        return page;
+    }
+
     public static String getUserId(Request req) {
         Object user = req.attribute("user");
         if (user == null) return null;
@@ -45,12 +63,28 @@ public class AppUtils {
         // Create and assign an instance of the driver here
 //        return null;
         var authToken = AuthTokens.basic(getNeo4jUsername(), getNeo4jPassword());
-        var driver = GraphDatabase.driver(getNeo4jUri(), authToken);
+        var driver = GraphDatabase.driver(getNeo4jUri(), authToken, driverConfig());
         driver.verifyConnectivity();
         return driver;
     }
     // end::initDriver[]
 
+    /**
+     * Connection pool settings, the defaults are the driver defaults. Driver metrics are
+     * always on, they are exported on `/metrics`.
+     */
+    static Config driverConfig() {
+        return Config.builder()
+                .withMaxConnectionPoolSize(Integer.parseInt(System.getProperty("NEO4J_MAX_POOL_SIZE", "100")))
+                .withConnectionAcquisitionTimeout(
+                        Long.parseLong(System.getProperty("NEO4J_ACQUISITION_TIMEOUT_SECONDS", "60")), TimeUnit.SECONDS)
+                .withMaxConnectionLifetime(
+                        Long.parseLong(System.getProperty("NEO4J_MAX_CONNECTION_LIFETIME_MINUTES", "60")), TimeUnit.MINUTES)
+                .withFetchSize(Long.parseLong(System.getProperty("NEO4J_FETCH_SIZE", "1000")))
+                .withDriverMetrics()
+                .build();
+    }
+
     static int getServerPort() {
         return Integer.parseInt(System.getProperty("APP_PORT", "3000"));
     }
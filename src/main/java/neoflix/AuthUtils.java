@@ -1,11 +1,8 @@
 package neoflix;
 
-import at.favre.lib.crypto.bcrypt.BCrypt;
 import com.auth0.jwt.JWT;
-import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
-import com.auth0.jwt.interfaces.DecodedJWT;
 
 import java.util.Calendar;
 import java.util.Date;
@@ -14,22 +11,17 @@ import java.util.Map;
 public class AuthUtils {
 
     public static String encryptPassword(String password) {
-        return BCrypt.withDefaults().hashToString(12, password.toCharArray());
+        return PasswordHasher.instance().hash(password);
     }
     public static boolean verifyPassword(String password, String hashed) {
-        BCrypt.Result result = BCrypt.verifyer().verify(password.toCharArray(), hashed);
-        return result.verified;
+        return PasswordHasher.instance().verify(password, hashed);
+    }
+    public static boolean needsRehash(String hashed) {
+        return PasswordHasher.instance().needsRehash(hashed);
     }
 
     public static String verify(String token, String secret) {
-        // todo reuse
-        Algorithm algorithm = Algorithm.HMAC256(secret);
-        // todo reuse
-        JWTVerifier verifier = JWT.require(algorithm)
-                .withIssuer("auth0")
-                .build(); //Reusable verifier instance
-        DecodedJWT jwt = verifier.verify(token);
-        return jwt.getSubject(); // sub == userId
+        return TokenVerifier.forSecret(secret).verify(token); // sub == userId
     }
 
     public static String sign(String sub, Map<String,Object> data, String secret) {
@@ -5,29 +5,35 @@ import com.google.gson.*;
 import java.lang.reflect.Type;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.List;
 
 public class GsonUtils {
-    public static Gson gson() {
-        try {
-            Class type = Class.forName("java.util.Collections$EmptyList");
-            GsonBuilder gsonBuilder = new GsonBuilder()
+    // Gson instances are immutable and thread-safe, one is shared by the whole app
+    private static final Gson GSON = new GsonBuilder()
             .registerTypeAdapter(LocalDate.class, new LocalDateSerializer())
             .setNumberToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
             .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
-            .registerTypeAdapter(type, new EmptyListSerializer());
-            return gsonBuilder.create();
-        } catch(ClassNotFoundException cnfe) {
-            throw new RuntimeException(cnfe);
-        }
+            .registerTypeAdapter(Collections.emptyList().getClass(), new EmptyListSerializer())
+            .create();
+
+    public static Gson gson() {
+        return GSON;
     }
 
-    static class LocalDateSerializer implements JsonSerializer<LocalDate> {
-        private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
+
+    /**
+     * @return the date as it is written in responses, e.g. `04-Apr-1957`
+     */
+    public static String formatDate(LocalDate date) {
+        return DATE_FORMAT.format(date);
+    }
 
+    static class LocalDateSerializer implements JsonSerializer<LocalDate> {
         @Override
         public JsonElement serialize(LocalDate localDate, Type srcType, JsonSerializationContext context) {
-            return new JsonPrimitive(formatter.format(localDate));
+            return new JsonPrimitive(formatDate(localDate));
         }
     }
     static class EmptyListSerializer implements JsonSerializer<List> {
@@ -0,0 +1,101 @@
+package neoflix;
+
+import com.google.gson.Gson;
+import neoflix.metrics.RequestTiming;
+import org.neo4j.driver.Value;
+import spark.Response;
+import spark.ResponseTransformer;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Streaming response mode for the list routes, enabled with `STREAM_RESPONSES=true`.
+ *
+ * Instead of collecting the rows of a page into a list of maps and turning the whole list
+ * into a JSON string, every row is written to the servlet output stream as soon as the driver
+ * hands it over, so a request holds on to a single row at a time. Each row is written as the
+ * map list mode would hold for it, so both modes answer with the same JSON.
+ *
+ * The `X-Next-Cursor` header is still sent as long as the page fits into the servlet response
+ * buffer; once the buffer has been flushed the headers are gone and the header is left out.
+ */
+public class JsonStream {
+
+    /**
+     * Returned by routes that already wrote their response body.
+     */
+    public static final Object STREAMED = new Object();
+
+    public static boolean enabled() {
+        return Boolean.parseBoolean(System.getProperty("STREAM_RESPONSES", "false"));
+    }
+
+    /**
+     * Response transformer for routes that may stream: behaves like `gson::toJson`, but
+     * doesn't add anything to a body that has been streamed already. The time spent is
+     * reported as the `serialize` phase of the request.
+     */
+    public static ResponseTransformer transformer(Gson gson) {
+        return model -> {
+            if (model == STREAMED) return "";
+            long start = System.nanoTime();
+            var json = gson.toJson(model);
+            RequestTiming.add("serialize", null, System.nanoTime() - start);
+            return json;
+        };
+    }
+
+    /**
+     * Respond with a page of rows, either streamed or as a list depending on the mode.
+     *
+     * @param field  sort key of the list for the `X-Next-Cursor` header, null for lists without
+     *               cursor paging
+     * @param idPath unique id of a row, for the `X-Next-Cursor` header
+     * @param list   reads the page as a list
+     * @param stream reads the page, passing every row to the given sink
+     * @return the list of rows, or {@link #STREAMED}
+     */
+    public static Object page(Response res, Params params, String field, String idPath,
+                              Supplier<List<Map<String, Object>>> list, Consumer<Consumer<Value>> stream) {
+        if (!enabled()) {
+            var page = list.get();
+            if (field != null) AppUtils.withNextCursor(res, params, page, field, idPath);
+            return page;
+        }
+        res.type("application/json");
+        var raw = res.raw();
+        var gson = GsonUtils.gson();
+        try {
+            // same output options as the default Gson instance
+            var writer = gson.newJsonWriter(new OutputStreamWriter(raw.getOutputStream(), StandardCharsets.UTF_8));
+            var page = new Page();
+            writer.beginArray();
+            stream.accept(row -> {
+                page.last = row.asMap();
+                page.count++;
+                gson.toJson(page.last, Map.class, writer);
+            });
+            writer.endArray();
+            if (field != null && !raw.isCommitted() && page.count == params.limit()) {
+                var cursor = params.nextCursor(List.of(page.last), field, idPath);
+                if (cursor != null) res.header("X-Next-Cursor", cursor);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return STREAMED;
+    }
+
+    private static class Page {
+        Map<String, Object> last;
+        int count;
+    }
+}
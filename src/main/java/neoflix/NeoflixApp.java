@@ -4,8 +4,21 @@ import static spark.Spark.*;
 
 import java.util.*;
 import com.google.gson.Gson;
+import neoflix.metrics.DriverMetrics;
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+import neoflix.metrics.RequestTiming;
+import neoflix.metrics.RouteMetrics;
 import neoflix.routes.*;
+import neoflix.services.FavoritesCache;
+import neoflix.services.PageCache;
+import neoflix.services.QueryCache;
+import neoflix.services.QueryLog;
+import neoflix.services.QueryRegistry;
+import neoflix.services.Services;
+import neoflix.services.SingleFlight;
 import org.neo4j.driver.*;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
 
 public class NeoflixApp {
 
@@ -13,27 +26,124 @@ public class NeoflixApp {
         AppUtils.loadProperties();
         int port = AppUtils.getServerPort();
         port(port);
-        // tag::driver[]
-        Driver driver = AppUtils.initDriver();
-        // end::driver[]
+        String jwtSecret = AppUtils.getJwtSecret();
+        // without a database the services run on the fixtures, e.g. for load tests
+        boolean fixtures = Services.useFixtures();
+        Driver driver = null;
+        Services backend;
+        if (fixtures) {
+            backend = Services.fixtures(jwtSecret);
+            System.out.println("Serving the in-memory fixtures, no database connection");
+        } else {
+            // tag::driver[]
+            driver = AppUtils.initDriver();
+            // end::driver[]
+            new SchemaManager(driver).ensure();
+            QueryLog.instance().profileWith(driver);
+            backend = Services.neo4j(driver, jwtSecret);
+        }
+        var singleFlight = new SingleFlight();
+        var pageCache = new PageCache();
+        var services = backend.coalescing(singleFlight, pageCache);
+        services.genreCatalog().start();
+        long bcryptBudget = Long.parseLong(System.getProperty("BCRYPT_CALIBRATE_MILLIS", "0"));
+        if (bcryptBudget > 0) {
+            int cost = PasswordHasher.instance().calibrate(bcryptBudget);
+            System.out.printf("Calibrated bcrypt cost %d for %d ms per hash%n", cost, bcryptBudget);
+        }
         Gson gson = GsonUtils.gson();
 
         staticFiles.location("/public");
-        String jwtSecret = AppUtils.getJwtSecret();
-        before((req, res) -> AppUtils.handleAuthAndSetUser(req, jwtSecret));
+        var routeMetrics = new RouteMetrics();
+        before((req, res) -> {
+            routeMetrics.start(req);
+            RequestTiming.start();
+        });
+        afterAfter((req, res) -> {
+            RequestTiming.finish(req, res);
+            routeMetrics.finish(req, res);
+            Startup.requestServed(req.requestMethod(), req.pathInfo());
+        });
+        before((req, res) -> {
+            long start = System.nanoTime();
+            AppUtils.handleAuthAndSetUser(req, jwtSecret);
+            RequestTiming.add("auth", null, System.nanoTime() - start);
+        });
         path("/api", () -> {
-            path("/movies", new MovieRoutes(driver, gson));
-            path("/genres", new GenreRoutes(driver, gson));
-            path("/auth", new AuthRoutes(driver, gson, jwtSecret));
-            path("/account", new AccountRoutes(driver, gson));
-            path("/people", new PeopleRoutes(driver, gson));
+            path("/movies", new MovieRoutes(services, gson));
+            path("/genres", new GenreRoutes(services, gson));
+            path("/auth", new AuthRoutes(services, gson));
+            path("/account", new AccountRoutes(services, gson));
+            path("/people", new PeopleRoutes(services, gson));
+        });
+        var warmUp = new WarmUp(services, driver, jwtSecret, gson);
+        // liveness only says the process serves requests, readiness waits for the warm-up
+        get("/health/live", (req, res) -> {
+            res.type("application/json");
+            return gson.toJson(Map.of("status", "UP"));
         });
+        get("/health/ready", (req, res) -> {
+            res.type("application/json");
+            if (!warmUp.done()) {
+                res.status(503);
+                return gson.toJson(Map.of("status", "WARMING_UP"));
+            }
+            return gson.toJson(Map.of("status", "READY"));
+        });
+        get("/metrics", (req, res) -> {
+            res.type(PrometheusText.CONTENT_TYPE);
+            return Metrics.instance().scrape();
+        });
+        if (!fixtures && Boolean.parseBoolean(System.getProperty("QUERY_WARMUP", "false"))) {
+            QueryRegistry.instance().warmUp(driver);
+        }
         exception(ValidationException.class, (exception, request, response) -> {
             response.status(422);
             var body = Map.of("message",exception.getMessage(), "details", exception.getDetails());
             response.body(gson.toJson(body));
             response.type("application/json");
         });
-        System.out.printf("Server listening on http://localhost:%d/%n", port);
+        exception(OverloadedException.class, (exception, request, response) -> {
+            response.status(429);
+            response.header("Retry-After", String.valueOf(exception.getRetryAfterSeconds()));
+            response.body(gson.toJson(Map.of("message", exception.getMessage())));
+            response.type("application/json");
+        });
+        exception(NoSuchRecordException.class, (exception, request, response) -> {
+            response.status(404);
+            response.body(gson.toJson(Map.of("message", exception.getMessage())));
+            response.type("application/json");
+        });
+        routeMetrics.routesRegistered(routes());
+        var metrics = Metrics.instance();
+        metrics.register(routeMetrics);
+        metrics.register(TokenVerifier.forSecret(jwtSecret));
+        metrics.register(PasswordHasher.instance());
+        metrics.register(FavoritesCache.instance());
+        metrics.register(singleFlight);
+        metrics.register(pageCache);
+        metrics.register(services.genreCatalog());
+        if (!fixtures) {
+            metrics.register(QueryCache.instance());
+            metrics.register(QueryLog.instance());
+            metrics.register(QueryRegistry.instance());
+            metrics.register(new DriverMetrics(driver));
+        }
+        awaitInitialization();
+        System.out.printf("Server listening on http://localhost:%d/ %d ms after JVM start%n",
+                port, Startup.millisSinceJvmStart());
+        if (WarmUp.enabled()) {
+            warmUp.run();
+        } else {
+            warmUp.skip();
+        }
+        System.out.printf("Ready %d ms after JVM start%n", Startup.millisSinceJvmStart());
+        if (Startup.training()) {
+            int failed = Startup.train(port);
+            System.out.printf("Training run done, %d requests failed%n", failed);
+            stop();
+            awaitStop();
+            System.exit(failed == 0 ? 0 : 1);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package neoflix;
+
+/**
+ * Thrown when a request can't be admitted because a bounded resource is saturated.
+ * Answered with `429 Too Many Requests` and a `Retry-After` header.
+ */
+public class OverloadedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+    public OverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
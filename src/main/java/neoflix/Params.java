@@ -4,13 +4,85 @@ import static neoflix.Params.Sort.*;
 
 import spark.Request;
 
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.Base64;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+public record Params(String query, Sort sort, Order order, int limit, int skip, Cursor after) {
+    public Params(String query, Sort sort, Order order, int limit, int skip) {
+        this(query, sort, order, limit, skip, null);
+    }
 
-public record Params(String query, Sort sort, Order order, int limit, int skip) {
     public Sort sort(Sort defaultSort) {
         return sort == null ? defaultSort : sort;
     }
 
+    /**
+     * Position after the last row of the previous page, used instead of `skip` so that deep
+     * pages are read with an index range seek rather than by skipping every earlier row.
+     *
+     * @param field name of the sort key the page was ordered by
+     * @param key   value of the sort key in the last row
+     * @param id    unique id of the last row, to break ties between equal keys
+     */
+    public record Cursor(String field, Object key, String id) {
+
+        public String encode() {
+            // dates are kept as ISO text, the service turns them back into dates, e.g. for `p.born`
+            var json = GsonUtils.gson().toJson(List.of(field, key instanceof TemporalAccessor ? key.toString() : key, id));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token) {
+            if (token == null || token.isBlank()) return null;
+            try {
+                var json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                List<?> values = GsonUtils.gson().fromJson(json, List.class);
+                return new Cursor((String) values.get(0), values.get(1), (String) values.get(2));
+            } catch (RuntimeException e) {
+                throw new ValidationException("Invalid cursor", Map.of("after", "Invalid cursor"));
+            }
+        }
+
+        /**
+         * Ensure the cursor was issued for a list ordered by the given field.
+         */
+        public Cursor requireField(String expected) {
+            if (!expected.equals(field)) {
+                throw new ValidationException("Cursor does not match the sort order",
+                        Map.of("after", "Cursor was issued for sort " + field));
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Build the cursor for the page following the given one, reading the sort key and id
+     * from the last row. Nested values can be addressed with a dotted path, e.g. `user.userId`.
+     *
+     * @return String the encoded cursor, or null when this was the last page
+     */
+    public String nextCursor(List<Map<String, Object>> page, String field, String idPath) {
+        if (page.isEmpty() || page.size() < limit) return null;
+        var last = page.get(page.size() - 1);
+        var key = lookup(last, field);
+        var id = lookup(last, idPath);
+        if (key == null || id == null) return null;
+        return new Cursor(field, key, id.toString()).encode();
+    }
+
+    private static Object lookup(Map<String, Object> row, String path) {
+        Object value = row;
+        for (String part : path.split("\\.")) {
+            if (!(value instanceof Map<?, ?> map)) return null;
+            value = map.get(part);
+        }
+        return value;
+    }
+
     public enum Order {
         ASC, DESC;
 
@@ -32,19 +104,38 @@ public record Params(String query, Sort sort, Order order, int limit, int skip)
     }
 
     public static final EnumSet<Sort> MOVIE_SORT = EnumSet.of(title, released, imdbRating, score);
-    public static final EnumSet<Sort> PEOPLE_SORT = EnumSet.of(name, born, movieCount);
+    public static final EnumSet<Sort> PEOPLE_SORT = EnumSet.of(name, born, movieCount, score);
     public static final EnumSet<Sort> RATING_SORT = EnumSet.of(rating, timestamp);
 
     public static Params parse(Request req, EnumSet<Sort> validSort) {
-        String q = req.queryParamsSafe("q");
-        Sort sort = Sort.of(req.queryParamsSafe("sort"));
-        Order order = Order.of(req.queryParamsSafe("order"));
+        return parse(req, validSort, false);
+    }
+
+    /**
+     * @param search whether the route searches with `q`, only then can it rank by `score`
+     */
+    public static Params parse(Request req, EnumSet<Sort> validSort, boolean search) {
+        // queryParamsSafe() would Base64 encode the values
+        String q = req.queryParams("q");
+        Sort sort = Sort.of(req.queryParams("sort"));
+        String order = req.queryParams("order");
         int limit = Integer.parseInt(req.queryParamOrDefault("limit", "6"));
         int skip = Integer.parseInt(req.queryParamOrDefault("skip", "0"));
-        // Only accept valid sort fields
-        if (!validSort.contains(sort)) {
-            sort = validSort.iterator().next();
+        // An `after` cursor replaces `skip`
+        Cursor after = Cursor.decode(req.queryParams("after"));
+        if (after != null) skip = 0;
+        // Rank search results by relevance unless another order is asked for
+        if (sort == null && search && q != null && !q.isBlank() && validSort.contains(score)) {
+            sort = score;
+        }
+        // Only accept valid sort fields, falling back to the first one that isn't a score
+        if (!validSort.contains(sort) || (sort == score && !search)) {
+            sort = validSort.stream().filter(s -> s != score).findFirst().orElseThrow();
+        }
+        // The best matches come first unless an order is asked for
+        if (sort == score && (order == null || order.isBlank())) {
+            return new Params(q, sort, Order.DESC, limit, skip, after);
         }
-        return new Params(q, sort, order, limit, skip);
+        return new Params(q, sort, Order.of(order), limit, skip, after);
     }
 }
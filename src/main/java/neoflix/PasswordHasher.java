@@ -0,0 +1,231 @@
+package neoflix;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+import neoflix.metrics.RequestTiming;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs bcrypt hashing and verification on a dedicated pool instead of the request threads.
+ *
+ * Bcrypt is CPU bound, so the pool has one thread per core (`BCRYPT_THREADS`) and a bounded
+ * queue of `BCRYPT_QUEUE_SIZE` waiting jobs (default 64). When the queue is full the request is
+ * rejected right away with an {@link OverloadedException}, instead of piling up behind a login
+ * burst and holding on to request threads the other routes need. A request waits at most
+ * `BCRYPT_TIMEOUT_MILLIS` (default 5000) for its job, then the job is cancelled and the request
+ * is rejected the same way, so a burst that does fit the queue can't park the request threads
+ * for longer either.
+ *
+ * New hashes use the cost factor `SALT_ROUNDS` (default 12). With `BCRYPT_CALIBRATE_MILLIS` set,
+ * {@link #calibrate(long)} replaces it at startup with the highest cost whose hash takes at most
+ * that long on this host. Stored hashes with a different cost are rehashed on the next login.
+ */
+public class PasswordHasher implements Metrics.Collector {
+
+    private static final PasswordHasher INSTANCE = new PasswordHasher(
+            Integer.parseInt(System.getProperty("BCRYPT_THREADS",
+                    String.valueOf(Runtime.getRuntime().availableProcessors()))),
+            Integer.parseInt(System.getProperty("BCRYPT_QUEUE_SIZE", "64")),
+            Integer.parseInt(System.getProperty("SALT_ROUNDS", "12")),
+            Long.parseLong(System.getProperty("BCRYPT_TIMEOUT_MILLIS", "5000")));
+
+    static final int MIN_COST = 4;
+    static final int MAX_COST = 31;
+
+    public static PasswordHasher instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param queued    jobs waiting for a thread
+     * @param active    jobs running
+     * @param completed jobs that ran, failed ones included
+     * @param rejected  jobs refused because the queue was full or they took too long
+     * @param hashNanos time spent running jobs, waiting in the queue excluded
+     */
+    public record Stats(int queued, int active, long completed, long rejected, long hashNanos) {
+        public double averageHashMillis() {
+            return completed == 0 ? 0 : hashNanos / 1e6 / completed;
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final long timeoutMillis;
+    private volatile int cost;
+
+    PasswordHasher(int threads, int queueSize, int cost) {
+        this(threads, queueSize, cost, 5000);
+    }
+
+    /**
+     * @param timeoutMillis how long a request waits for its job, queue wait included
+     */
+    PasswordHasher(int threads, int queueSize, int cost, long timeoutMillis) {
+        this.cost = checkCost(cost);
+        this.timeoutMillis = timeoutMillis;
+        var count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    var thread = new Thread(r, "bcrypt-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    /**
+     * @return String the bcrypt hash of the password with the current cost
+     * @throws OverloadedException if the queue is full
+     */
+    public String hash(String password) {
+        return hash(password, cost);
+    }
+
+    /**
+     * @return String the bcrypt hash of the password with the given cost
+     * @throws OverloadedException if the queue is full
+     */
+    public String hash(String password, int cost) {
+        return run(() -> BCrypt.withDefaults().hashToString(cost, password.toCharArray()), timeoutMillis);
+    }
+
+    /**
+     * @return boolean whether the password matches the bcrypt hash
+     * @throws OverloadedException if the queue is full
+     */
+    public boolean verify(String password, String hashed) {
+        return run(() -> BCrypt.verifyer().verify(password.toCharArray(), hashed).verified);
+    }
+
+    /**
+     * @return boolean whether a stored hash was made with another cost than the current one
+     */
+    public boolean needsRehash(String hashed) {
+        // $2a$12$<salt and hash>
+        if (hashed == null || hashed.length() < 7 || hashed.charAt(3) != '$') return false;
+        try {
+            return Integer.parseInt(hashed.substring(4, 6)) != cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Time a hash at increasing costs, each one roughly doubles the time, and switch to the
+     * highest cost that stays within the budget. The cost doesn't go below {@link #MIN_COST}.
+     *
+     * @param targetMillis the time a single hash may take on this host
+     * @return int the new cost
+     */
+    public int calibrate(long targetMillis) {
+        int calibrated = MIN_COST;
+        for (int candidate = MIN_COST; candidate <= MAX_COST; candidate++) {
+            long start = System.nanoTime();
+            // without a timeout, the slow costs are what is being measured
+            int cost = candidate;
+            run(() -> BCrypt.withDefaults().hashToString(cost, "calibration".toCharArray()), 0);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (millis > targetMillis) break;
+            calibrated = candidate;
+            // the next cost takes about twice as long, don't wait for it if that is over budget anyway
+            if (millis * 2 > targetMillis) break;
+        }
+        cost = calibrated;
+        return calibrated;
+    }
+
+    public Stats stats() {
+        return new Stats(executor.getQueue().size(), executor.getActiveCount(),
+                completed.sum(), rejected.sum(), hashNanos.sum());
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        var stats = stats();
+        out.single("neoflix_bcrypt_queue_depth", "gauge", "Password hashing jobs waiting for a thread.", stats.queued());
+        out.single("neoflix_bcrypt_active", "gauge", "Password hashing jobs running.", stats.active());
+        out.single("neoflix_bcrypt_jobs_total", "counter", "Password hashing jobs run.", stats.completed());
+        out.single("neoflix_bcrypt_rejected_total", "counter", "Password hashing jobs refused with 429.", stats.rejected());
+        out.single("neoflix_bcrypt_timed_out_total", "counter",
+                "Password hashing jobs cancelled after BCRYPT_TIMEOUT_MILLIS, included in the rejected ones.", timedOut.sum());
+        out.single("neoflix_bcrypt_seconds_total", "counter", "Time spent hashing passwords.", stats.hashNanos() / 1e9);
+        out.single("neoflix_bcrypt_cost", "gauge", "Cost factor of new password hashes.", cost);
+    }
+
+    <T> T run(Callable<T> job) {
+        return run(job, timeoutMillis);
+    }
+
+    /**
+     * @param timeoutMillis how long to wait for the job, `0` waits until it is done
+     */
+    <T> T run(Callable<T> job, long timeoutMillis) {
+        long submitted = System.nanoTime();
+        Future<T> future = null;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return job.call();
+                } finally {
+                    hashNanos.add(System.nanoTime() - start);
+                    completed.increment();
+                }
+            });
+            return timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new OverloadedException("Too many login attempts, try again later", retryAfterSeconds());
+        } catch (TimeoutException e) {
+            // a queued job is dropped, a running one can't be stopped but nobody waits for it
+            future.cancel(true);
+            executor.remove((Runnable) future);
+            rejected.increment();
+            timedOut.increment();
+            throw new OverloadedException("Too many login attempts, try again later", retryAfterSeconds());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            // queue wait included, that is what the request waited for
+            RequestTiming.add("bcrypt", null, System.nanoTime() - submitted);
+        }
+    }
+
+    private static int checkCost(int cost) {
+        if (cost < MIN_COST || cost > MAX_COST) {
+            throw new IllegalArgumentException("SALT_ROUNDS must be between " + MIN_COST + " and " + MAX_COST);
+        }
+        return cost;
+    }
+
+    /**
+     * @return the time the current queue takes to drain, at least one second
+     */
+    long retryAfterSeconds() {
+        var stats = stats();
+        double millis = (stats.queued() + stats.active()) * stats.averageHashMillis() / executor.getMaximumPoolSize();
+        return Math.max(1, (long) Math.ceil(millis / 1000));
+    }
+}
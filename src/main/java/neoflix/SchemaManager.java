@@ -0,0 +1,155 @@
+package neoflix;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.exceptions.ClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Declares the constraints and indexes the service queries rely on, creates the missing ones
+ * at startup and waits for them to come online.
+ *
+ * Creation can be switched off with `SCHEMA_CREATE=false`, e.g. when the app user has no
+ * schema privileges. The report printed at the end lists every query that would fall back
+ * to a label scan because its index is missing or not online.
+ */
+public class SchemaManager {
+
+    public enum Kind { UNIQUE, RANGE, FULLTEXT }
+
+    /**
+     * @param name       name of the constraint or index
+     * @param kind       unique constraint, range or full-text index
+     * @param label      node label
+     * @param properties indexed properties, only full-text indexes have more than one
+     * @param usedBy     named queries that look up, sort or search by these properties
+     */
+    public record Requirement(String name, Kind kind, String label, List<String> properties, List<String> usedBy) {
+
+        Requirement(String name, Kind kind, String label, String property, List<String> usedBy) {
+            this(name, kind, label, List.of(property), usedBy);
+        }
+
+        String createStatement() {
+            return switch (kind) {
+                case UNIQUE -> String.format("CREATE CONSTRAINT %s IF NOT EXISTS FOR (n:%s) REQUIRE n.%s IS UNIQUE",
+                        name, label, properties.get(0));
+                case RANGE -> String.format("CREATE INDEX %s IF NOT EXISTS FOR (n:%s) ON (n.%s)",
+                        name, label, properties.get(0));
+                case FULLTEXT -> String.format("CREATE FULLTEXT INDEX %s IF NOT EXISTS FOR (n:%s) ON EACH [%s]",
+                        name, label, String.join(", ", properties.stream().map(p -> "n." + p).toList()));
+            };
+        }
+
+        /**
+         * @return key to match against the online indexes, full-text indexes are found by name
+         */
+        String indexKey() {
+            return kind == Kind.FULLTEXT ? name : label + "." + properties.get(0);
+        }
+    }
+
+    public static final List<Requirement> REQUIREMENTS = List.of(
+            new Requirement("movie_tmdbId", Kind.UNIQUE, "Movie", "tmdbId",
+                    List.of("MovieService.findById", "MovieService.getSimilarMovies", "RatingService.forMovie",
+                            "RatingService.add", "FavoriteService.add", "FavoriteService.remove")),
+            new Requirement("user_userId", Kind.UNIQUE, "User", "userId",
+                    List.of("MovieService.getUserFavorites", "FavoriteService.all", "FavoriteService.add",
+                            "FavoriteService.remove", "RatingService.add")),
+            new Requirement("user_email", Kind.UNIQUE, "User", "email",
+                    List.of("AuthService.register", "AuthService.authenticate")),
+            new Requirement("person_tmdbId", Kind.UNIQUE, "Person", "tmdbId",
+                    List.of("PeopleService.findById", "PeopleService.getSimilarPeople",
+                            "MovieService.getForActor", "MovieService.getForDirector")),
+            new Requirement("genre_name", Kind.UNIQUE, "Genre", "name",
+                    List.of("GenreService.find", "MovieService.byGenre")),
+            new Requirement("movie_imdbRating", Kind.RANGE, "Movie", "imdbRating",
+                    List.of("MovieService.all sort=imdbRating")),
+            new Requirement("movie_released", Kind.RANGE, "Movie", "released",
+                    List.of("MovieService.all sort=released")),
+            new Requirement("movie_title", Kind.RANGE, "Movie", "title",
+                    List.of("MovieService.all sort=title")),
+            new Requirement("person_name", Kind.RANGE, "Person", "name",
+                    List.of("PeopleService.all")),
+            new Requirement("person_born", Kind.RANGE, "Person", "born",
+                    List.of("PeopleService.all sort=born")),
+            new Requirement("person_name_fulltext", Kind.FULLTEXT, "Person", "name",
+                    List.of("PeopleService.search")),
+            new Requirement("movie_title_plot_fulltext", Kind.FULLTEXT, "Movie", List.of("title", "plot"),
+                    List.of("MovieService.search"))
+    );
+
+    private final Driver driver;
+
+    public SchemaManager(Driver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Create the missing constraints and indexes, wait until they are online and print a report.
+     *
+     * @return List<Requirement> requirements that are still not backed by an online index
+     */
+    public List<Requirement> ensure() {
+        boolean create = Boolean.parseBoolean(System.getProperty("SCHEMA_CREATE", "true"));
+        long awaitSeconds = Long.parseLong(System.getProperty("SCHEMA_AWAIT_SECONDS", "300"));
+        try (var session = driver.session()) {
+            if (create) {
+                for (var requirement : REQUIREMENTS) {
+                    try {
+                        session.run(requirement.createStatement()).consume();
+                    } catch (ClientException e) {
+                        // e.g. duplicate values or a conflicting index, reported as missing below
+                        System.err.printf("Could not create %s: %s%n", requirement.name(), e.getMessage());
+                    }
+                }
+            }
+            try {
+                session.run("CALL db.awaitIndexes($timeout)", Values.parameters("timeout", awaitSeconds)).consume();
+            } catch (ClientException e) {
+                System.err.printf("Indexes did not come online within %d s: %s%n", awaitSeconds, e.getMessage());
+            }
+        }
+        var missing = missing();
+        report(missing);
+        return missing;
+    }
+
+    /**
+     * @return List<Requirement> requirements without an online index on their label and property
+     */
+    public List<Requirement> missing() {
+        try (var session = driver.session()) {
+            // SHOW commands are not allowed in explicit transactions, use an auto-commit query
+            var online = session.run("""
+                    SHOW INDEXES YIELD name, type, labelsOrTypes, properties, state, entityType
+                    WHERE entityType = 'NODE' AND state = 'ONLINE'
+                    RETURN CASE type WHEN 'FULLTEXT' THEN name ELSE labelsOrTypes[0] + '.' + properties[0] END AS key
+                    """).list(row -> row.get("key").asString(""));
+            var missing = new ArrayList<Requirement>();
+            for (var requirement : REQUIREMENTS) {
+                if (!online.contains(requirement.indexKey())) {
+                    missing.add(requirement);
+                }
+            }
+            return missing;
+        }
+    }
+
+    private void report(List<Requirement> missing) {
+        if (missing.isEmpty()) {
+            System.out.printf("Schema ready: %d constraints and indexes online%n", REQUIREMENTS.size());
+            return;
+        }
+        System.out.printf("Schema incomplete, %d of %d constraints and indexes are not online:%n",
+                missing.size(), REQUIREMENTS.size());
+        for (var requirement : missing) {
+            System.out.printf("  :%s(%s) missing, %s in %s%n",
+                    requirement.label(), String.join(", ", requirement.properties()),
+                    requirement.kind() == Kind.FULLTEXT ? "search fails" : "label scan",
+                    String.join(", ", requirement.usedBy()));
+        }
+    }
+}
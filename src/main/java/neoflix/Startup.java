@@ -0,0 +1,113 @@
+package neoflix;
+
+import neoflix.services.Services;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Startup timing and the training run of the class data sharing archive.
+ *
+ * The app logs how long after the JVM started it began listening and when it answered its first
+ * request. Time to first request is the number to compare when changing what runs at startup,
+ * it includes loading and linking the classes the first request needs.
+ *
+ * With `CDS_TRAINING=true` the app sends a request to each of its main routes once it is
+ * listening, then exits. Run with `-XX:ArchiveClassesAtExit` this writes the classes loaded by
+ * startup and by the first requests into an AppCDS archive, which later starts map instead of
+ * loading them from the jars again. See the `cds` profile in pom.xml.
+ *
+ * Like the {@link WarmUp}, training leaves the database alone: only the fixtures, which are
+ * not stored anywhere, get a freshly registered account. Against Neo4j the run logs in with the
+ * existing account of `CDS_EMAIL` and `CDS_PASSWORD`, without them the routes that need a user
+ * are left out.
+ */
+public final class Startup {
+
+    private static final AtomicBoolean firstRequest = new AtomicBoolean();
+
+    private Startup() {
+    }
+
+    public static long millisSinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    public static boolean training() {
+        return Boolean.parseBoolean(System.getProperty("CDS_TRAINING", "false"));
+    }
+
+    /**
+     * Log the first served request, later calls do nothing.
+     */
+    public static void requestServed(String method, String path) {
+        if (firstRequest.get() || !firstRequest.compareAndSet(false, true)) return;
+        System.out.printf("First request %s %s served %d ms after JVM start%n", method, path, millisSinceJvmStart());
+    }
+
+    /**
+     * Send one request to each of the main routes, the way the frontend does after a login.
+     *
+     * @return the number of requests that failed
+     */
+    public static int train(int port) throws InterruptedException {
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        var base = "http://localhost:" + port;
+        int failed = 0;
+        String token = null;
+        var auth = new ArrayList<String>();
+        Map<String, String> credentials;
+        if (Services.useFixtures()) {
+            auth.add("/api/auth/register");
+            credentials = Map.of("email", "cds-" + UUID.randomUUID() + "@example.com", "password", "letmein",
+                    "name", "CDS Training");
+        } else {
+            credentials = Map.of("email", System.getProperty("CDS_EMAIL", ""),
+                    "password", System.getProperty("CDS_PASSWORD", ""));
+        }
+        if (!credentials.get("email").isBlank()) {
+            auth.add("/api/auth/login");
+        } else {
+            System.out.println("Training without a user, set CDS_EMAIL and CDS_PASSWORD to an existing account");
+        }
+        for (var path : auth) {
+            var response = send(client, HttpRequest.newBuilder(URI.create(base + path))
+                    .POST(HttpRequest.BodyPublishers.ofString(GsonUtils.gson().toJson(credentials))));
+            if (response == null || response.statusCode() >= 400) {
+                failed++;
+                continue;
+            }
+            token = (String) GsonUtils.gson().fromJson(response.body(), Map.class).get("token");
+        }
+        for (var path : List.of("/api/movies?sort=imdbRating&order=DESC&limit=6", "/api/movies/680",
+                "/api/movies/680/similar", "/api/movies/680/ratings", "/api/genres", "/api/genres/Comedy/movies",
+                "/api/people?q=tom", "/api/people/31", "/api/account/favorites", "/metrics")) {
+            if (token == null && path.startsWith("/api/account")) continue;
+            var request = HttpRequest.newBuilder(URI.create(base + path)).GET();
+            if (token != null) request.header("Authorization", "Bearer " + token);
+            var response = send(client, request);
+            if (response == null || response.statusCode() >= 400) failed++;
+        }
+        return failed;
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest.Builder request)
+            throws InterruptedException {
+        try {
+            return client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            System.err.printf("Training request %s failed: %s%n", request.build().uri(), e.getMessage());
+            return null;
+        }
+    }
+}
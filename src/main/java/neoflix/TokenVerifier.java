@@ -0,0 +1,142 @@
+package neoflix;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Verifies the JWT tokens sent in the `Authorization` header.
+ *
+ * There is one verifier per secret, built once with its HMAC algorithm. Tokens that passed
+ * verification are remembered together with their `exp` claim, so the next request with the
+ * same token only costs a lookup in a concurrent map until the token expires. Lookups take no
+ * lock, concurrent requests don't wait for each other.
+ *
+ * The cache holds about `TOKEN_CACHE_SIZE` tokens (default 10000, `0` disables it). When a new
+ * token takes it over the limit, expired tokens are dropped first and then arbitrary ones, down
+ * to 90% of the limit, so that the sweep runs once per many new tokens rather than on each one.
+ */
+public class TokenVerifier implements Metrics.Collector {
+
+    private static final Map<String, TokenVerifier> INSTANCES = new ConcurrentHashMap<>();
+
+    /**
+     * @return the shared verifier for tokens signed with this secret
+     */
+    public static TokenVerifier forSecret(String secret) {
+        return INSTANCES.computeIfAbsent(secret, s -> new TokenVerifier(s,
+                Integer.parseInt(System.getProperty("TOKEN_CACHE_SIZE", "10000")), System::currentTimeMillis));
+    }
+
+    /**
+     * @param hits              requests answered from the cache
+     * @param misses            requests that needed a full verification
+     * @param verifications     successful full verifications
+     * @param verifyNanos       time spent in full verifications, failed ones included
+     * @param size              tokens currently cached
+     */
+    public record Stats(long hits, long misses, long verifications, long verifyNanos, int size) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        public double averageVerifyMicros() {
+            return misses == 0 ? 0 : verifyNanos / 1000.0 / misses;
+        }
+    }
+
+    private record Verified(String subject, long expiresAt) {
+    }
+
+    private final JWTVerifier verifier;
+    private final int maxTokens;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Verified> verified = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+
+    /**
+     * A verifier of its own, with its own cache, e.g. without one to compare with the shared
+     * verifier of {@link #forSecret(String)}.
+     */
+    public TokenVerifier(String secret, int maxTokens, LongSupplier clock) {
+        this.verifier = JWT.require(Algorithm.HMAC256(secret))
+                .withIssuer("auth0")
+                .build();
+        this.maxTokens = maxTokens;
+        this.clock = clock;
+    }
+
+    /**
+     * @param token the encoded JWT, without the `Bearer ` prefix
+     * @return String the subject of the token, which is the userId
+     * @throws com.auth0.jwt.exceptions.JWTVerificationException if the token is invalid or expired
+     */
+    public String verify(String token) {
+        boolean cache = maxTokens > 0;
+        if (cache) {
+            var cached = verified.get(token);
+            if (cached != null) {
+                if (clock.getAsLong() < cached.expiresAt()) {
+                    hits.increment();
+                    return cached.subject();
+                }
+                verified.remove(token, cached);
+            }
+        }
+        misses.increment();
+        long start = System.nanoTime();
+        try {
+            var jwt = verifier.verify(token);
+            verifications.increment();
+            long expiresAt = jwt.getExpiresAt() == null ? Long.MAX_VALUE : jwt.getExpiresAt().getTime();
+            // the library accepts a token until its exp second is over, the cache is stricter
+            if (cache && clock.getAsLong() < expiresAt) {
+                verified.put(token, new Verified(jwt.getSubject(), expiresAt));
+                if (verified.size() > maxTokens) evict();
+            }
+            return jwt.getSubject();
+        } finally {
+            verifyNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Drop expired tokens, then others until the cache is at 90% of its limit. Concurrent misses
+     * may both sweep, the bound is approximate.
+     */
+    private void evict() {
+        long now = clock.getAsLong();
+        verified.values().removeIf(token -> now >= token.expiresAt());
+        int target = maxTokens - maxTokens / 10;
+        var tokens = verified.keySet().iterator();
+        while (verified.size() > target && tokens.hasNext()) {
+            tokens.next();
+            tokens.remove();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), verifications.sum(), verifyNanos.sum(), verified.size());
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        var stats = stats();
+        out.single("neoflix_token_cache_hits_total", "counter", "Tokens answered from the verified-token cache.", stats.hits());
+        out.single("neoflix_token_cache_misses_total", "counter", "Tokens that needed a full verification.", stats.misses());
+        out.single("neoflix_token_cache_size", "gauge", "Tokens in the verified-token cache.", stats.size());
+        out.single("neoflix_token_verify_seconds_total", "counter", "Time spent in full token verifications.",
+                stats.verifyNanos() / 1e9);
+    }
+}
@@ -0,0 +1,218 @@
+package neoflix;
+
+import com.google.gson.Gson;
+import neoflix.services.QueryLog;
+import neoflix.services.Services;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Warm-up phase between the server starting to listen and `/health/ready` reporting ready.
+ *
+ * Right after startup the driver pool holds a single connection, the server has planned none of
+ * the queries and the JIT has compiled none of the request path, so the first requests after a
+ * deploy are slow. The warm-up
+ *
+ * <ol>
+ * <li>opens `WARMUP_CONNECTIONS` pool connections (default 10, at most `NEO4J_MAX_POOL_SIZE`),</li>
+ * <li>calls every read method of the services `WARMUP_ROUNDS` times (default 3) with parameters
+ * taken from the data, and serializes the results the way the routes do,</li>
+ * <li>signs and verifies `WARMUP_ITERATIONS` tokens (default 1000) and serializes their claims.</li>
+ * </ol>
+ *
+ * Writes are left out, registering, rating or favoriting would change the data. On the fixtures
+ * there is no database, only the service calls and the code paths are warmed. The plans of all
+ * list query variants are cached separately with `QUERY_WARMUP`, before the server listens.
+ * Failures are logged and don't stop the warm-up, a cold app is still better than none.
+ * `WARMUP=false` skips it and the app is ready as soon as it listens.
+ */
+public final class WarmUp {
+
+    // no account has this id, the favorites of the user come back empty
+    private static final String USER_ID = "neoflix-warm-up";
+
+    private final Services services;
+    private final Driver driver;
+    private final String jwtSecret;
+    private final Gson gson;
+    private final int connections;
+    private final int rounds;
+    private final int iterations;
+    private final List<String> failures = new ArrayList<>();
+    private final Set<String> called = new HashSet<>();
+    private volatile boolean done;
+
+    /**
+     * @param driver null when the services run on the fixtures
+     */
+    public WarmUp(Services services, Driver driver, String jwtSecret, Gson gson) {
+        this.services = services;
+        this.driver = driver;
+        this.jwtSecret = jwtSecret;
+        this.gson = gson;
+        this.connections = Math.min(Integer.parseInt(System.getProperty("WARMUP_CONNECTIONS", "10")),
+                Integer.parseInt(System.getProperty("NEO4J_MAX_POOL_SIZE", "100")));
+        this.rounds = Integer.parseInt(System.getProperty("WARMUP_ROUNDS", "3"));
+        this.iterations = Integer.parseInt(System.getProperty("WARMUP_ITERATIONS", "1000"));
+    }
+
+    public static boolean enabled() {
+        return Boolean.parseBoolean(System.getProperty("WARMUP", "true"));
+    }
+
+    /**
+     * @return true once the warm-up finished or was skipped
+     */
+    public boolean done() {
+        return done;
+    }
+
+    /**
+     * Mark the app ready without warming up.
+     */
+    public void skip() {
+        done = true;
+    }
+
+    public void run() {
+        long start = System.currentTimeMillis();
+        try {
+            if (driver != null) openConnections();
+            var queries = ConcurrentHashMap.<String>newKeySet();
+            QueryLog.instance().listen(query -> queries.add(query.name()));
+            try {
+                for (int round = 0; round < rounds; round++) {
+                    callServices();
+                }
+            } finally {
+                QueryLog.instance().listen(null);
+            }
+            exerciseTokens();
+            System.out.printf("Warm-up called %d service methods %d times%s and signed %d tokens in %d ms%n",
+                    called.size(), rounds, driver == null ? "" : " (" + queries.size() + " named queries)",
+                    iterations, System.currentTimeMillis() - start);
+            failures.stream().distinct().forEach(message -> System.err.println("Warm-up: " + message));
+        } finally {
+            done = true;
+        }
+    }
+
+    /**
+     * Hold a transaction on each of `connections` sessions at the same time, so the pool has
+     * to open that many connections, then hand them back to the pool as idle connections.
+     */
+    private void openConnections() {
+        var sessions = new ArrayList<Session>();
+        var transactions = new ArrayList<Transaction>();
+        try {
+            for (int i = 0; i < connections; i++) {
+                var session = driver.session();
+                sessions.add(session);
+                var tx = session.beginTransaction();
+                transactions.add(tx);
+                tx.run("RETURN 1").consume();
+            }
+        } catch (RuntimeException e) {
+            failures.add("opened " + transactions.size() + " of " + connections + " connections: " + e.getMessage());
+        } finally {
+            transactions.forEach(Transaction::close);
+            sessions.forEach(Session::close);
+        }
+    }
+
+    private void callServices() {
+        var movies = services.movies();
+        var byTitle = new Params(null, Params.Sort.title, Params.Order.ASC, 6, 0);
+        var byRating = new Params(null, Params.Sort.imdbRating, Params.Order.DESC, 6, 0);
+        for (var sort : Params.MOVIE_SORT) {
+            // score only ranks search results
+            if (sort == Params.Sort.score) continue;
+            for (var order : Params.Order.values()) {
+                var params = new Params(null, sort, order, 6, 0);
+                call("MovieService.all", () -> movies.all(params, USER_ID));
+            }
+        }
+        var first = call("MovieService.all", () -> movies.all(byTitle, USER_ID));
+        var cursor = byTitle.nextCursor(first, "title", "tmdbId");
+        if (cursor != null) {
+            var next = new Params(null, Params.Sort.title, Params.Order.ASC, 6, 0, Params.Cursor.decode(cursor));
+            call("MovieService.all after", () -> movies.all(next, USER_ID));
+        }
+        call("MovieService.search", () -> movies.search(
+                new Params("the", Params.Sort.score, Params.Order.DESC, 6, 0), USER_ID));
+        var movieId = first.isEmpty() ? null : (String) first.get(0).get("tmdbId");
+        if (movieId != null) {
+            call("MovieService.findById", () -> List.of(movies.findById(movieId, USER_ID)));
+            call("MovieService.getSimilarMovies", () -> movies.getSimilarMovies(movieId,
+                    new Params(null, null, Params.Order.ASC, 6, 0), USER_ID));
+            call("RatingService.forMovie", () -> services.ratings().forMovie(movieId,
+                    new Params(null, Params.Sort.timestamp, Params.Order.DESC, 6, 0)));
+        }
+        call("FavoriteService.all", () -> services.favorites().all(USER_ID, byTitle));
+
+        var genres = call("GenreService.all", () -> services.genres().all());
+        var genre = genres.isEmpty() ? null : (String) genres.get(0).get("name");
+        if (genre != null) {
+            call("GenreService.find", () -> List.of(services.genres().find(genre)));
+            call("MovieService.byGenre", () -> movies.byGenre(genre, byRating, USER_ID));
+        }
+
+        var people = call("PeopleService.all", () -> services.people().all(
+                new Params(null, Params.Sort.name, Params.Order.ASC, 6, 0)));
+        call("PeopleService.all search", () -> services.people().all(
+                new Params("to", Params.Sort.score, Params.Order.DESC, 6, 0)));
+        var personId = people.isEmpty() ? null : (String) people.get(0).get("tmdbId");
+        if (personId != null) {
+            call("PeopleService.findById", () -> List.of(services.people().findById(personId)));
+            call("PeopleService.getSimilarPeople", () -> services.people().getSimilarPeople(personId,
+                    new Params(null, null, Params.Order.ASC, 6, 0)));
+            call("MovieService.getForActor", () -> movies.getForActor(personId, byRating, USER_ID));
+            call("MovieService.getForDirector", () -> movies.getForDirector(personId, byRating, USER_ID));
+        }
+    }
+
+    /**
+     * Run a service call and serialize its result.
+     *
+     * @return the rows, empty when the call failed
+     */
+    private List<Map<String, Object>> call(String name, Supplier<List<Map<String, Object>>> call) {
+        try {
+            var rows = call.get();
+            gson.toJson(rows);
+            called.add(name);
+            return rows;
+        } catch (RuntimeException e) {
+            failures.add(name + " failed: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Sign and verify tokens like a login followed by authenticated requests. A verifier
+     * without cache does the full verification every time and leaves the shared verifier and
+     * its metrics alone.
+     */
+    private void exerciseTokens() {
+        var verifier = new TokenVerifier(jwtSecret, 0, System::currentTimeMillis);
+        var user = Map.<String, Object>of("userId", USER_ID, "email", USER_ID + "@example.com", "name", "Warm-up");
+        try {
+            for (int i = 0; i < iterations; i++) {
+                var token = AuthUtils.sign(USER_ID, user, jwtSecret);
+                verifier.verify(token);
+                gson.toJson(Map.of("userId", USER_ID, "token", token));
+            }
+        } catch (RuntimeException e) {
+            failures.add("tokens failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package neoflix.metrics;
+
+import org.neo4j.driver.ConnectionPoolMetrics;
+import org.neo4j.driver.Driver;
+
+import java.util.Collection;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Connection pool metrics of the Neo4j driver, one pool per server address.
+ *
+ * Requests waiting in `acquiring` or a growing `timed_out_to_acquire` count mean the app is
+ * bound by the pool size (`NEO4J_MAX_POOL_SIZE`) rather than by query time.
+ */
+public final class DriverMetrics implements Metrics.Collector {
+
+    private final Driver driver;
+
+    public DriverMetrics(Driver driver) {
+        this.driver = driver;
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        if (!driver.isMetricsEnabled()) return;
+        var pools = driver.metrics().connectionPoolMetrics();
+        pool(out, pools, "neoflix_pool_in_use", "gauge", "Connections in use.", ConnectionPoolMetrics::inUse);
+        pool(out, pools, "neoflix_pool_idle", "gauge", "Idle connections.", ConnectionPoolMetrics::idle);
+        pool(out, pools, "neoflix_pool_creating", "gauge", "Connections being created.", ConnectionPoolMetrics::creating);
+        pool(out, pools, "neoflix_pool_acquiring", "gauge", "Requests waiting for a connection.",
+                ConnectionPoolMetrics::acquiring);
+        pool(out, pools, "neoflix_pool_acquired_total", "counter", "Connections handed out.",
+                ConnectionPoolMetrics::acquired);
+        pool(out, pools, "neoflix_pool_acquisition_seconds_total", "counter", "Time spent waiting for a connection.",
+                pool -> pool.totalAcquisitionTime() / 1e3);
+        pool(out, pools, "neoflix_pool_timed_out_to_acquire_total", "counter",
+                "Requests that gave up waiting for a connection.", ConnectionPoolMetrics::timedOutToAcquire);
+        pool(out, pools, "neoflix_pool_created_total", "counter", "Connections created.",
+                ConnectionPoolMetrics::created);
+        pool(out, pools, "neoflix_pool_failed_to_create_total", "counter", "Connections that could not be created.",
+                ConnectionPoolMetrics::failedToCreate);
+        pool(out, pools, "neoflix_pool_closed_total", "counter", "Connections closed.", ConnectionPoolMetrics::closed);
+        pool(out, pools, "neoflix_pool_in_use_seconds_total", "counter", "Time connections were in use.",
+                pool -> pool.totalInUseTime() / 1e3);
+    }
+
+    private static void pool(PrometheusText out, Collection<ConnectionPoolMetrics> pools, String name, String type,
+                             String help, ToDoubleFunction<ConnectionPoolMetrics> value) {
+        out.family(name, type, help);
+        for (var pool : pools) {
+            out.sample(name, value.applyAsDouble(pool), "pool", pool.id());
+        }
+    }
+}
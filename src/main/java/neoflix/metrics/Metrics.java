@@ -0,0 +1,45 @@
+package neoflix.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of everything exported on `/metrics`.
+ *
+ * Components keep their own counters and only format them when the endpoint is scraped.
+ */
+public final class Metrics {
+
+    /**
+     * Writes the current values of a component.
+     */
+    public interface Collector {
+        void collect(PrometheusText out);
+    }
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    public static Metrics instance() {
+        return INSTANCE;
+    }
+
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    private Metrics() {
+    }
+
+    public void register(Collector collector) {
+        collectors.add(collector);
+    }
+
+    /**
+     * @return String all metrics in the Prometheus text format
+     */
+    public String scrape() {
+        var out = new PrometheusText();
+        for (var collector : collectors) {
+            collector.collect(out);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package neoflix.metrics;
+
+import spark.Request;
+import spark.Response;
+
+import java.util.Arrays;
+
+/**
+ * Where the time of a request went: the phases are collected while the request runs and sent
+ * back in a `Server-Timing` header, e.g.
+ *
+ * <pre>
+ * Server-Timing: auth;dur=0.08, db;desc=MovieService.all;dur=4.31, serialize;dur=0.52, total;dur=5.40
+ * </pre>
+ *
+ * A request is handled on a single thread from the first `before` filter to the last
+ * `afterAfter` filter, so each thread keeps one recorder and reuses its arrays for the next
+ * request. Code without access to the request, like the query log, records into the recorder of
+ * the current thread; outside of a request that is a no-op.
+ *
+ * Requests slower than `SERVER_TIMING_LOG_MILLIS` (default 0, disabled) are also logged with
+ * their phases.
+ */
+public final class RequestTiming {
+
+    private static final int MAX_PHASES = 16;
+    private static final long LOG_NANOS =
+            Long.parseLong(System.getProperty("SERVER_TIMING_LOG_MILLIS", "0")) * 1_000_000L;
+    private static final ThreadLocal<RequestTiming> CURRENT = ThreadLocal.withInitial(RequestTiming::new);
+
+    private final String[] names = new String[MAX_PHASES];
+    private final String[] descriptions = new String[MAX_PHASES];
+    private final long[] nanos = new long[MAX_PHASES];
+    private final StringBuilder header = new StringBuilder(256);
+    private int phases;
+    private long start;
+    private boolean active;
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Start recording for the request on the current thread.
+     */
+    public static void start() {
+        var timing = CURRENT.get();
+        timing.phases = 0;
+        timing.start = System.nanoTime();
+        timing.active = true;
+    }
+
+    /**
+     * Add time to a phase of the current request. Repeated phases with the same name and
+     * description are added up.
+     *
+     * @param description e.g. the name of a query, or null
+     */
+    public static void add(String name, String description, long elapsedNanos) {
+        var timing = CURRENT.get();
+        if (!timing.active) return;
+        for (int i = 0; i < timing.phases; i++) {
+            if (timing.names[i].equals(name) && equals(timing.descriptions[i], description)) {
+                timing.nanos[i] += elapsedNanos;
+                return;
+            }
+        }
+        if (timing.phases == MAX_PHASES) return;
+        timing.names[timing.phases] = name;
+        timing.descriptions[timing.phases] = description;
+        timing.nanos[timing.phases] = elapsedNanos;
+        timing.phases++;
+    }
+
+    /**
+     * Set the `Server-Timing` header, unless a streamed body already committed the headers,
+     * and stop recording.
+     */
+    public static void finish(Request req, Response res) {
+        var timing = CURRENT.get();
+        if (!timing.active) return;
+        timing.active = false;
+        long total = System.nanoTime() - timing.start;
+        var header = timing.render(total);
+        if (!res.raw().isCommitted()) {
+            res.header("Server-Timing", header);
+        }
+        if (LOG_NANOS > 0 && total >= LOG_NANOS) {
+            System.err.printf("Slow request %s %s: %s%n", req.requestMethod(), req.pathInfo(), header);
+        }
+        // don't keep the descriptions of the last request alive
+        Arrays.fill(timing.descriptions, null);
+    }
+
+    /**
+     * @return the header value for the phases recorded on the current thread so far
+     */
+    static String header(long totalNanos) {
+        return CURRENT.get().render(totalNanos);
+    }
+
+    private String render(long total) {
+        header.setLength(0);
+        for (int i = 0; i < phases; i++) {
+            entry(names[i], descriptions[i], nanos[i]);
+        }
+        entry("total", null, total);
+        return header.toString();
+    }
+
+    private void entry(String name, String description, long nanos) {
+        if (header.length() > 0) header.append(", ");
+        header.append(name);
+        if (description != null) header.append(";desc=").append(description);
+        // milliseconds with two decimals, without going through String.format
+        long hundredths = (nanos + 5_000) / 10_000;
+        header.append(";dur=").append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) header.append('0');
+        header.append(fraction);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
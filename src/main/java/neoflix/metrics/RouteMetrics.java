@@ -0,0 +1,157 @@
+package neoflix.metrics;
+
+import spark.Request;
+import spark.Response;
+import spark.route.HttpMethod;
+import spark.routematch.RouteMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency, status and in-flight metrics per route template, e.g. `GET /api/movies/:id/similar`.
+ *
+ * {@link #start(Request)} runs as the first `before` filter and {@link #finish(Request, Response)}
+ * as an `afterAfter` filter, which Spark runs for every request, also when the route threw.
+ * Inside filters Spark only knows the path of the filter, so the template is found by matching
+ * the request against the routes registered with Spark, see {@link #routesRegistered(List)}.
+ * All per-route state is created up front, recording a request doesn't allocate.
+ */
+public final class RouteMetrics implements Metrics.Collector {
+
+    private static final String ROUTE = "neoflix.route";
+    private static final String START = "neoflix.start";
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    static final class Route {
+        final String method;
+        final String template;
+        final String[] segments;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLongArray statuses = new AtomicLongArray(600);
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Route(String method, String template) {
+            this.method = method;
+            this.template = template;
+            this.segments = template.isEmpty() ? new String[0] : template.substring(1).split("/");
+        }
+    }
+
+    private final Route unmatched = new Route("", "unmatched");
+    private volatile Route[] routes = new Route[0];
+
+    /**
+     * Build the route templates, call this once all routes are registered. Until then every
+     * request is counted as `unmatched`.
+     *
+     * @param matches the routes registered with Spark, see `Spark.routes()`
+     */
+    public void routesRegistered(List<RouteMatch> matches) {
+        var routes = new ArrayList<Route>();
+        for (var match : matches) {
+            var method = match.getHttpMethod();
+            if (method == HttpMethod.before || method == HttpMethod.after || method == HttpMethod.afterafter) continue;
+            routes.add(new Route(method.name().toUpperCase(), match.getMatchUri()));
+        }
+        this.routes = routes.toArray(new Route[0]);
+    }
+
+    public void start(Request req) {
+        var route = match(req.requestMethod(), req.pathInfo());
+        route.inFlight.incrementAndGet();
+        req.attribute(ROUTE, route);
+        req.attribute(START, System.nanoTime());
+    }
+
+    public void finish(Request req, Response res) {
+        Route route = req.attribute(ROUTE);
+        Long start = req.attribute(START);
+        if (route == null || start == null) return;
+        route.inFlight.decrementAndGet();
+        route.latency.record(System.nanoTime() - start);
+        int status = res.raw().getStatus();
+        route.statuses.incrementAndGet(status >= 100 && status < 600 ? status : 0);
+    }
+
+    /**
+     * @return the nanoTime the request was started at, or null outside of a request
+     */
+    public static Long startOf(Request req) {
+        return req.attribute(START);
+    }
+
+    /**
+     * Match the request against the templates in registration order, the same order Spark uses.
+     */
+    Route match(String method, String path) {
+        for (var route : routes) {
+            if (route.method.equals(method) && matches(route.segments, path)) return route;
+        }
+        return unmatched;
+    }
+
+    /**
+     * Compare the path segment by segment without splitting it. `:param` matches any non empty
+     * segment, `*` anything from there on, a trailing slash is ignored.
+     */
+    static boolean matches(String[] segments, String path) {
+        int end = path.length();
+        if (end > 1 && path.charAt(end - 1) == '/') end--;
+        int pos = path.startsWith("/") ? 1 : 0;
+        if (segments.length == 0) return pos >= end;
+        for (int i = 0; i < segments.length; i++) {
+            if (pos > end) return false;
+            int next = path.indexOf('/', pos);
+            if (next < 0 || next > end) next = end;
+            String segment = segments[i];
+            if (segment.equals("*")) return true;
+            if (segment.startsWith(":")) {
+                if (next == pos) return false;
+            } else if (next - pos != segment.length() || !path.regionMatches(pos, segment, 0, segment.length())) {
+                return false;
+            }
+            pos = next + 1;
+        }
+        return pos > end;
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        var all = new ArrayList<>(List.of(routes));
+        all.add(unmatched);
+
+        out.family("neoflix_http_request_duration_seconds", "summary", "Time to handle a request, by route template.");
+        for (var route : all) {
+            long count = route.latency.count();
+            if (count == 0) continue;
+            for (double quantile : QUANTILES) {
+                out.sample("neoflix_http_request_duration_seconds", route.latency.percentile(quantile) / 1e9,
+                        "method", route.method, "route", route.template, "quantile", String.valueOf(quantile));
+            }
+            out.sample("neoflix_http_request_duration_seconds_sum", route.latency.sumNanos() / 1e9,
+                    "method", route.method, "route", route.template);
+            out.sample("neoflix_http_request_duration_seconds_count", count,
+                    "method", route.method, "route", route.template);
+        }
+
+        out.family("neoflix_http_requests_total", "counter", "Requests handled, by route template and status.");
+        for (var route : all) {
+            for (int status = 0; status < route.statuses.length(); status++) {
+                long count = route.statuses.get(status);
+                if (count > 0) {
+                    out.sample("neoflix_http_requests_total", count,
+                            "method", route.method, "route", route.template, "status", String.valueOf(status));
+                }
+            }
+        }
+
+        out.family("neoflix_http_requests_in_flight", "gauge", "Requests being handled, by route template.");
+        for (var route : all) {
+            out.sample("neoflix_http_requests_in_flight", route.inFlight.get(),
+                    "method", route.method, "route", route.template);
+        }
+    }
+}
@@ -3,22 +3,26 @@ package neoflix.routes;
 import com.google.gson.Gson;
 import neoflix.Params;
 import neoflix.AppUtils;
-import neoflix.services.FavoriteService;
-import neoflix.services.RatingService;
-import org.neo4j.driver.Driver;
+import neoflix.JsonStream;
+import neoflix.services.Favorites;
+import neoflix.services.Ratings;
+import neoflix.services.Services;
+import spark.ResponseTransformer;
 import spark.RouteGroup;
 
 import static spark.Spark.*;
 
 public class AccountRoutes implements RouteGroup {
     private final Gson gson;
-    private final FavoriteService favoriteService;
-    private final RatingService ratingService;
+    private final ResponseTransformer json;
+    private final Favorites favoriteService;
+    private final Ratings ratingService;
 
-    public AccountRoutes(Driver driver, Gson gson) {
+    public AccountRoutes(Services services, Gson gson) {
         this.gson = gson;
-        favoriteService = new FavoriteService(driver);
-        ratingService = new RatingService(driver);
+        this.json = JsonStream.transformer(gson);
+        favoriteService = services.favorites();
+        ratingService = services.ratings();
     }
 
     @Override
@@ -28,7 +32,7 @@ public class AccountRoutes implements RouteGroup {
          *
          * This route simply returns the claims made in the JWT token
          */
-        get("", (req, res) -> req.attribute("user"), gson::toJson);
+        get("", (req, res) -> req.attribute("user"), json);
 
         /*
          * @GET /account/favorites/
@@ -39,8 +43,11 @@ public class AccountRoutes implements RouteGroup {
         // tag::list[]
         get("/favorites", (req, res) -> {
             String userId = AppUtils.getUserId(req);
-            return favoriteService.all(userId, Params.parse(req, Params.MOVIE_SORT));
-        }, gson::toJson);
+            var params = Params.parse(req, Params.MOVIE_SORT);
+            return JsonStream.page(res, params, params.sort(Params.Sort.title).name(), "tmdbId",
+                    () -> favoriteService.all(userId, params),
+                    sink -> favoriteService.all(userId, params, sink));
+        }, json);
         // end::list[]
 
         /*
@@ -53,7 +60,7 @@ public class AccountRoutes implements RouteGroup {
         post("/favorites/:id", (req, res) -> {
             String userId = AppUtils.getUserId(req);
             return favoriteService.add(userId, req.params(":id"));
-        }, gson::toJson);
+        }, json);
         // end::add[]
 
         /*
@@ -66,7 +73,7 @@ public class AccountRoutes implements RouteGroup {
         delete("/favorites/:id", (req, res) -> {
             String userId = AppUtils.getUserId(req); // TODO
             return favoriteService.remove(userId, req.params(":id"));
-        }, gson::toJson);
+        }, json);
         // end::delete[]
 
         /*
@@ -81,7 +88,7 @@ public class AccountRoutes implements RouteGroup {
             String userId = AppUtils.getUserId(req); // TODO
             int rating = Integer.parseInt(req.body());
             return ratingService.add(userId, req.params(":id"), rating);
-        }, gson::toJson);
+        }, json);
         // end::rating[]
     }
 
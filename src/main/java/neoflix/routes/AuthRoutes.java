@@ -2,19 +2,23 @@ package neoflix.routes;
 
 import com.google.gson.Gson;
 import neoflix.AppUtils;
-import neoflix.services.AuthService;
-import org.neo4j.driver.Driver;
+import neoflix.JsonStream;
+import neoflix.services.Accounts;
+import neoflix.services.Services;
+import spark.ResponseTransformer;
 import spark.RouteGroup;
 
 import static spark.Spark.*;
 
 public class AuthRoutes implements RouteGroup {
     private final Gson gson;
-    private final AuthService authService;
+    private final ResponseTransformer json;
+    private final Accounts authService;
 
-    public AuthRoutes(Driver driver, Gson gson, String jwtSecret) {
+    public AuthRoutes(Services services, Gson gson) {
         this.gson = gson;
-        authService = new AuthService(driver, jwtSecret);
+        this.json = JsonStream.transformer(gson);
+        authService = services.accounts();
     }
 
     static class UserData { String email, name, password; };
@@ -36,7 +40,7 @@ public class AuthRoutes implements RouteGroup {
                 req.attribute("user", user.get("userId"));
             }
             return user;
-        }, gson::toJson);
+        }, json);
         // end::login[]
 
         /*
@@ -53,7 +57,7 @@ public class AuthRoutes implements RouteGroup {
             UserData userData = gson.fromJson(req.body(), UserData.class);
 
             return authService.register(userData.email, userData.password, userData.name);
-        }, gson::toJson);
+        }, json);
         // end::register[]
     }
 }
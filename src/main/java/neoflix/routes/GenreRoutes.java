@@ -3,22 +3,26 @@ package neoflix.routes;
 import com.google.gson.Gson;
 import neoflix.Params;
 import neoflix.AppUtils;
-import neoflix.services.GenreService;
-import neoflix.services.MovieService;
-import org.neo4j.driver.Driver;
+import neoflix.JsonStream;
+import neoflix.services.GenreCatalog;
+import neoflix.services.Movies;
+import neoflix.services.Services;
+import spark.ResponseTransformer;
 import spark.RouteGroup;
 
 import static spark.Spark.get;
 
 public class GenreRoutes implements RouteGroup {
     private final Gson gson;
-    private final GenreService genreService;
-    private final MovieService movieService;
+    private final ResponseTransformer json;
+    private final GenreCatalog genreCatalog;
+    private final Movies movieService;
 
-    public GenreRoutes(Driver driver, Gson gson) {
-        genreService = new GenreService(driver); // new GenreServiceFixture();
-        movieService = new MovieService(driver);
+    public GenreRoutes(Services services, Gson gson) {
+        genreCatalog = services.genreCatalog();
+        movieService = services.movies();
         this.gson = gson;
+        this.json = JsonStream.transformer(gson);
     }
 
     @Override
@@ -28,8 +32,15 @@ public class GenreRoutes implements RouteGroup {
          *
          * This route should retrieve a full list of Genres from the
          * database along with a poster and movie count.
+         *
+         * Genres are served from the GenreCatalog snapshot, the `Age` header tells how
+         * many seconds old it is.
          */
-        get("", (req, res) -> genreService.all(), gson::toJson);
+        get("", (req, res) -> {
+            var snapshot = genreCatalog.snapshot();
+            res.header("Age", String.valueOf(snapshot.ageMillis() / 1000));
+            return snapshot.genres();
+        }, json);
 
         /*
          * @GET /genres/:name
@@ -38,7 +49,11 @@ public class GenreRoutes implements RouteGroup {
          * that matches the :name URL parameter.  If the genre is not found,
          * a 404 should be thrown.
          */
-        get("/:name", (req, res) -> genreService.find(req.params(":name")), gson::toJson);
+        get("/:name", (req, res) -> {
+            var snapshot = genreCatalog.snapshot();
+            res.header("Age", String.valueOf(snapshot.ageMillis() / 1000));
+            return snapshot.find(req.params(":name"));
+        }, json);
 
         /**
          * @GET /genres/:name/movies
@@ -48,8 +63,12 @@ public class GenreRoutes implements RouteGroup {
          */
         get("/:name/movies", (req, res) -> {
             String userId = AppUtils.getUserId(req);
-            return movieService.byGenre(req.params(":name"), Params.parse(req, Params.MOVIE_SORT), userId);
-        }, gson::toJson);
+            String name = req.params(":name");
+            var params = Params.parse(req, Params.MOVIE_SORT);
+            return JsonStream.page(res, params, params.sort(Params.Sort.title).name(), "tmdbId",
+                    () -> movieService.byGenre(name, params, userId),
+                    sink -> movieService.byGenre(name, params, userId, sink));
+        }, json);
     }
 
 }
@@ -3,9 +3,11 @@ package neoflix.routes;
 import com.google.gson.Gson;
 import neoflix.Params;
 import neoflix.AppUtils;
-import neoflix.services.MovieService;
-import neoflix.services.RatingService;
-import org.neo4j.driver.Driver;
+import neoflix.JsonStream;
+import neoflix.services.Movies;
+import neoflix.services.Ratings;
+import neoflix.services.Services;
+import spark.ResponseTransformer;
 import spark.RouteGroup;
 
 import java.util.Map;
@@ -14,15 +16,17 @@ import static spark.Spark.get;
 
 public class MovieRoutes implements RouteGroup {
     private final Gson gson;
-    private final MovieService movieService;
-    private final RatingService ratingService;
+    private final ResponseTransformer json;
+    private final Movies movieService;
+    private final Ratings ratingService;
 
-    public MovieRoutes(Driver driver, Gson gson) {
+    public MovieRoutes(Services services, Gson gson) {
         this.gson = gson;
+        this.json = JsonStream.transformer(gson);
         // tag::list[]
-        movieService = new MovieService(driver);  // <1>
+        movieService = services.movies();  // <1>
         // end::list[]
-        ratingService = new RatingService(driver);
+        ratingService = services.ratings();
     }
 
     @Override
@@ -32,13 +36,24 @@ public class MovieRoutes implements RouteGroup {
          *
          * This route should return a paginated list of movies, sorted by the
          * `sort` query parameter,
+         *
+         * With a `q` query parameter the movies are searched by title and plot instead,
+         * ranked by relevance unless another `sort` is given.
          */
         // tag::list[]
         get("", (req, res) -> {
-            var params = Params.parse(req, Params.MOVIE_SORT); // <2>
+            var params = Params.parse(req, Params.MOVIE_SORT, true); // <2>
             String userId = AppUtils.getUserId(req);  // <3>
-            return movieService.all(params, userId);  // <4>
-        }, gson::toJson);
+            var sort = params.sort(Params.Sort.title).name();
+            if (params.query() == null || params.query().isBlank()) {
+                return JsonStream.page(res, params, sort, "tmdbId",
+                        () -> movieService.all(params, userId),  // <4>
+                        sink -> movieService.all(params, userId, sink));
+            }
+            return JsonStream.page(res, params, sort, "tmdbId",
+                    () -> movieService.search(params, userId),
+                    sink -> movieService.search(params, userId, sink));
+        }, json);
         // end::list[]
 
         /*
@@ -51,7 +66,7 @@ public class MovieRoutes implements RouteGroup {
             String userId = AppUtils.getUserId(req);
             Map<String, Object> movie = movieService.findById(req.params(":id"), userId);
             return movie;
-        }, gson::toJson);
+        }, json);
 
         /*
          * @GET /movies/:id/ratings
@@ -61,7 +76,13 @@ public class MovieRoutes implements RouteGroup {
          * the rating itself or when the review was created.
          */
         // tag::ratings[]
-        get("/:id/ratings", (req, res) -> ratingService.forMovie(req.params(":id"), Params.parse(req, Params.RATING_SORT)), gson::toJson);
+        get("/:id/ratings", (req, res) -> {
+            var params = Params.parse(req, Params.RATING_SORT);
+            String id = req.params(":id");
+            return JsonStream.page(res, params, "timestamp", "user.userId",
+                    () -> ratingService.forMovie(id, params),
+                    sink -> ratingService.forMovie(id, params, sink));
+        }, json);
         // end::ratings[]
 
         /*
@@ -73,8 +94,13 @@ public class MovieRoutes implements RouteGroup {
         // tag::similar[]
         get("/:id/similar", (req, res) -> {
             String userId = AppUtils.getUserId(req);
-            return movieService.getSimilarMovies(req.params(":id"), Params.parse(req, Params.MOVIE_SORT), userId);
-        }, gson::toJson);
+            String id = req.params(":id");
+            var params = Params.parse(req, Params.MOVIE_SORT);
+            // ranked by similarity, pages are addressed with skip only
+            return JsonStream.page(res, params, null, "tmdbId",
+                    () -> movieService.getSimilarMovies(id, params, userId),
+                    sink -> movieService.getSimilarMovies(id, params, userId, sink));
+        }, json);
         // end::similar[]
     }
 
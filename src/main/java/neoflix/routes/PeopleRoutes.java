@@ -3,22 +3,26 @@ package neoflix.routes;
 import com.google.gson.Gson;
 import neoflix.Params;
 import neoflix.AppUtils;
-import neoflix.services.MovieService;
-import neoflix.services.PeopleService;
-import org.neo4j.driver.Driver;
+import neoflix.JsonStream;
+import neoflix.services.Movies;
+import neoflix.services.People;
+import neoflix.services.Services;
+import spark.ResponseTransformer;
 import spark.RouteGroup;
 
 import static spark.Spark.get;
 
 public class PeopleRoutes implements RouteGroup {
     private final Gson gson;
-    private final PeopleService peopleService;
-    private final MovieService movieService;
+    private final ResponseTransformer json;
+    private final People peopleService;
+    private final Movies movieService;
 
-    public PeopleRoutes(Driver driver, Gson gson) {
+    public PeopleRoutes(Services services, Gson gson) {
         this.gson = gson;
-        peopleService = new PeopleService(driver);
-        movieService = new MovieService(driver);
+        this.json = JsonStream.transformer(gson);
+        peopleService = services.people();
+        movieService = services.movies();
     }
 
     @Override
@@ -28,14 +32,19 @@ public class PeopleRoutes implements RouteGroup {
          *
          * This route should return a paginated list of People from the database
          */
-        get("", (req, res) -> peopleService.all(Params.parse(req, Params.PEOPLE_SORT)), gson::toJson);
+        get("", (req, res) -> {
+            var params = Params.parse(req, Params.PEOPLE_SORT, true);
+            return JsonStream.page(res, params, peopleService.sortOf(params).name(), "tmdbId",
+                    () -> peopleService.all(params),
+                    sink -> peopleService.all(params, sink));
+        }, json);
 
         /*
          * @GET /people/:id
          *
          * This route should the properties of a Person based on their tmdbId
          */
-        get("/:id", (req, res) -> peopleService.findById(req.params(":id")), gson::toJson);
+        get("/:id", (req, res) -> peopleService.findById(req.params(":id")), json);
 
         /*
          * @GET /people/:id/similar
@@ -43,7 +52,7 @@ public class PeopleRoutes implements RouteGroup {
          * This route should return a paginated list of similar people to the person
          * with the :id supplied in the route params.
          */
-        get("/:id/similar", (req, res) -> peopleService.getSimilarPeople(req.params(":id"), Params.parse(req, Params.PEOPLE_SORT)), gson::toJson);
+        get("/:id/similar", (req, res) -> peopleService.getSimilarPeople(req.params(":id"), Params.parse(req, Params.PEOPLE_SORT)), json);
 
         /*
          * @GET /people/:id/acted
@@ -53,8 +62,12 @@ public class PeopleRoutes implements RouteGroup {
          */
         get("/:id/acted", (req, res) -> {
             String userId = AppUtils.getUserId(req);
-            return movieService.getForActor(req.params(":id"), Params.parse(req, Params.MOVIE_SORT), userId);
-        }, gson::toJson);
+            String id = req.params(":id");
+            var params = Params.parse(req, Params.MOVIE_SORT);
+            return JsonStream.page(res, params, params.sort(Params.Sort.title).name(), "tmdbId",
+                    () -> movieService.getForActor(id, params, userId),
+                    sink -> movieService.getForActor(id, params, userId, sink));
+        }, json);
 
         /*
          * @GET /people/:id/directed
@@ -64,8 +77,12 @@ public class PeopleRoutes implements RouteGroup {
          */
         get("/:id/directed", (req, res) -> {
             String userId = AppUtils.getUserId(req);
-            return movieService.getForDirector(req.params(":id"), Params.parse(req, Params.MOVIE_SORT), userId);
-        }, gson::toJson);
+            String id = req.params(":id");
+            var params = Params.parse(req, Params.MOVIE_SORT);
+            return JsonStream.page(res, params, params.sort(Params.Sort.title).name(), "tmdbId",
+                    () -> movieService.getForDirector(id, params, userId),
+                    sink -> movieService.getForDirector(id, params, userId, sink));
+        }, json);
     }
 
 }
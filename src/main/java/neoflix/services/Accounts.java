@@ -0,0 +1,20 @@
+package neoflix.services;
+
+import java.util.Map;
+
+/**
+ * Registration and login, see {@link AuthService} for the Neo4j implementation.
+ */
+public interface Accounts {
+
+    /**
+     * @return the new user with a JWT `token`
+     */
+    Map<String, Object> register(String email, String plainPassword, String name);
+
+    /**
+     * @return the user with a JWT `token`
+     * @throws neoflix.ValidationException if the email is unknown or the password is wrong
+     */
+    Map<String, Object> authenticate(String email, String plainPassword);
+}
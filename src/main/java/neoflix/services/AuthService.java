@@ -1,6 +1,5 @@
 package neoflix.services;
 
-import neoflix.AppUtils;
 import neoflix.AuthUtils;
 
 import org.neo4j.driver.Driver;
@@ -8,7 +7,6 @@ import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Values;
 
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,11 +14,10 @@ import neoflix.ValidationException;
 import org.neo4j.driver.exceptions.ClientException;
 import org.neo4j.driver.exceptions.NoSuchRecordException;
 
-public class AuthService {
+public class AuthService implements Accounts {
 
 
     private final Driver driver;
-    private final List<Map<String, Object>> users;
     private String jwtSecret;
 
     /**
@@ -33,7 +30,6 @@ public class AuthService {
     public AuthService(Driver driver, String jwtSecret) {
         this.driver = driver;
         this.jwtSecret = jwtSecret;
-        this.users = AppUtils.loadFixtureList("users");
     }
 
     /**
@@ -64,7 +60,7 @@ public class AuthService {
                                   name: $name
                             })
                             RETURN u { .userId, .name, .email } as u""";
-                var res = tx.run(statement, Values.parameters("email", email, "encrypted", encrypted, "name", name));
+                var res = QueryLog.run(tx, "AuthService.register", statement, Values.parameters("email", email, "encrypted", encrypted, "name", name));
                 // end::create[]
                 // tag::extract[]
                 // Extract safe properties from the user node (`u`) in the first row
@@ -114,7 +110,7 @@ public class AuthService {
         try (var session = driver.session()) {
             var user = session.readTransaction(tx -> {
                     String statement = "MATCH (u:User {email:$email}) RETURN u";
-                    var result = tx.run(statement, Values.parameters("email", email));
+                    var result = QueryLog.run(tx, "AuthService.authenticate", statement, Values.parameters("email", email));
                     return result.single().get("u").asMap();
                 }
             );
@@ -122,6 +118,9 @@ public class AuthService {
             if (!AuthUtils.verifyPassword(plainPassword, (String) user.get("password"))) {
                 throw new ValidationException("Incorrect password",Map.of("password","Incorrect password"));
             }
+            if (AuthUtils.needsRehash((String) user.get("password"))) {
+                rehash(session, (String) user.get("userId"), plainPassword);
+            }
 
             // tag::return[]
             String sub = (String) user.get("userId");
@@ -136,6 +135,21 @@ public class AuthService {
     }
     // end::authenticate[]
 
+    /**
+     * Store the password hashed with the current cost factor. The login doesn't depend on it,
+     * so a failure is only logged and the rehash is tried again on the next login.
+     */
+    private void rehash(Session session, String userId, String plainPassword) {
+        try {
+            var encrypted = AuthUtils.encryptPassword(plainPassword);
+            session.writeTransaction(tx -> QueryLog.run(tx, "AuthService.rehash",
+                    "MATCH (u:User {userId: $userId}) SET u.password = $encrypted",
+                    Values.parameters("userId", userId, "encrypted", encrypted)).consume());
+        } catch (RuntimeException e) {
+            System.err.printf("Could not rehash the password of user %s: %s%n", userId, e.getMessage());
+        }
+    }
+
     private Map<String, Object> userToClaims(Map<String,Object> user) {
         return Map.of(
             "sub", user.get("userId"),
@@ -0,0 +1,113 @@
+package neoflix.services;
+
+import neoflix.Params;
+import org.neo4j.driver.Value;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link Movies} in front of another implementation, coalescing concurrent identical reads with
+ * a {@link SingleFlight} and serving the catalog listings from a {@link PageCache}.
+ *
+ * A trending movie is requested by many users at once, but the `favorite` flag makes every
+ * user's result different. So the shared read runs without a user, and the flag of every movie
+ * is set afterwards from the ids in {@link Favorites#ids(String)}, for each caller on its own
+ * copy of the rows. The anonymous pages of {@link #all}, {@link #byGenre}, {@link #getForActor},
+ * {@link #getForDirector} and {@link #getSimilarMovies} are cached, one cached page serves every
+ * user and only misses reach the database. Search results and movie details are only coalesced.
+ *
+ * With `SINGLE_FLIGHT=false` the reads are not coalesced and with `PAGE_CACHE_SIZE=0` the pages
+ * are not cached, the two are independent.
+ *
+ * With `STREAM_RESPONSES=true` the cached listings are read as a whole page and then written to
+ * the response, they are at most one page long. A streamed search is passed through unchanged, it
+ * is written to one response as it is read and can't be shared.
+ */
+public final class CoalescingMovies implements Movies {
+
+    /**
+     * The part of the {@link Params} a listing is read with, the listing queries ignore `q`, so
+     * a stray `?q=` doesn't make another page.
+     */
+    private record Listing(Params.Sort sort, Params.Order order, int skip, int limit, Params.Cursor after) {
+        static Listing of(Params params) {
+            return new Listing(params.sort(), params.order(), params.skip(), params.limit(), params.after());
+        }
+    }
+
+    private final Movies movies;
+    private final Favorites favorites;
+    private final SingleFlight flights;
+    private final PageCache pages;
+
+    public CoalescingMovies(Movies movies, Favorites favorites, SingleFlight flights, PageCache pages) {
+        this.movies = movies;
+        this.favorites = favorites;
+        this.flights = flights;
+        this.pages = pages;
+    }
+
+    @Override
+    public List<Map<String, Object>> all(Params params, String userId) {
+        return overlay(page("MovieService.all", List.of(Listing.of(params)), () -> movies.all(params, null)), userId);
+    }
+
+    @Override
+    public List<Map<String, Object>> search(Params params, String userId) {
+        return overlay(flights.run("MovieService.search", List.of(params), () -> movies.search(params, null)), userId);
+    }
+
+    @Override
+    public void search(Params params, String userId, Consumer<Value> sink) {
+        movies.search(params, userId, sink);
+    }
+
+    @Override
+    public Map<String, Object> findById(String id, String userId) {
+        var movie = flights.run("MovieService.findById", List.of(id), () -> movies.findById(id, null));
+        return userId == null ? movie : Favorites.flag(movie, favorites.ids(userId));
+    }
+
+    @Override
+    public List<Map<String, Object>> getSimilarMovies(String id, Params params, String userId) {
+        return overlay(page("MovieService.getSimilarMovies", List.of(id, Listing.of(params)),
+                () -> movies.getSimilarMovies(id, params, null)), userId);
+    }
+
+    @Override
+    public List<Map<String, Object>> byGenre(String name, Params params, String userId) {
+        return overlay(page("MovieService.byGenre", List.of(name, Listing.of(params)),
+                () -> movies.byGenre(name, params, null)), userId);
+    }
+
+    @Override
+    public List<Map<String, Object>> getForActor(String actorId, Params params, String userId) {
+        return overlay(page("MovieService.getForActor", List.of(actorId, Listing.of(params)),
+                () -> movies.getForActor(actorId, params, null)), userId);
+    }
+
+    @Override
+    public List<Map<String, Object>> getForDirector(String directorId, Params params, String userId) {
+        return overlay(page("MovieService.getForDirector", List.of(directorId, Listing.of(params)),
+                () -> movies.getForDirector(directorId, params, null)), userId);
+    }
+
+    /**
+     * Read an anonymous page from the cache, concurrent misses for the same page share one read.
+     */
+    private List<Map<String, Object>> page(String route, List<Object> arguments,
+                                           Supplier<List<Map<String, Object>>> read) {
+        return pages.get(route, arguments, () -> flights.run(route, arguments, read));
+    }
+
+    /**
+     * @return the shared rows for anonymous callers, otherwise copies with the user's `favorite` flags
+     */
+    private List<Map<String, Object>> overlay(List<Map<String, Object>> rows, String userId) {
+        if (userId == null) return rows;
+        return Favorites.flag(rows, favorites.ids(userId));
+    }
+}
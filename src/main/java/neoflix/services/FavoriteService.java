@@ -1,27 +1,35 @@
 package neoflix.services;
 
 import javax.naming.NameNotFoundException;
-import neoflix.AppUtils;
 import neoflix.Params;
 import neoflix.ValidationException;
 import org.neo4j.driver.Driver;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
 import org.neo4j.driver.Values;
 import org.neo4j.driver.exceptions.NoSuchRecordException;
 
-public class FavoriteService {
+public class FavoriteService implements Favorites {
+
+    private static final QueryRegistry.Family ALL = QueryRegistry.instance().registerMovieList("FavoriteService.all", """
+            MATCH (u:User {userId:$userId})-[r:HAS_FAVORITE]-(m:Movie)
+            WHERE true %2$s
+            RETURN m {.*,favorite:true} as movie
+            %3$s
+            %4$s
+            LIMIT $limit
+            """);
 
     private final Driver driver;
 
-    private final List<Map<String, Object>> popular;
-    private final List<Map<String, Object>> users;
-    private final Map<String, List<Map<String, Object>>> userFavorites = new HashMap<>();
 
     /**
      * The constructor expects an instance of the Neo4j Driver, which will be used to interact with
@@ -31,8 +39,6 @@ public class FavoriteService {
      */
     public FavoriteService(Driver driver) {
         this.driver = driver;
-        this.popular = AppUtils.loadFixtureList("popular");
-        this.users = AppUtils.loadFixtureList("users");
     }
 
     /**
@@ -51,20 +57,12 @@ public class FavoriteService {
     public List<Map<String, Object>> all(String userId, Params params) {
 
 
+        // not in the QueryCache: the list belongs to one user, there is no result to share
         try (var session = driver.session()) {
             var favorites = session.readTransaction(tx-> {
-                String query = String.format(
-                    """
-                    MATCH (u:User {userId:$userId})-[r:HAS_FAVORITE]-(m:Movie)
-                    RETURN m {.*,favorite:true} as movie
-                    ORDER BY m.`%s` %s
-                    SKIP $skip
-                    LIMIT $limit
-                    """,params.sort(Params.Sort.title),params.order());
-                var result = tx
-                    .run(query, Values.parameters("userId", userId, "skip", params.skip(), "limit", params.limit()));
+                var result = allQuery(tx, userId, params);
                 return result.list(row -> row.get("movie").asMap());
-            }) ;
+            });
             return favorites;
         }
 
@@ -72,6 +70,34 @@ public class FavoriteService {
     }
     // end::all[]
 
+    /**
+     * Streaming variant of {@link #all(String, Params)}, every movie is passed to the sink as
+     * soon as it is read.
+     */
+    public void all(String userId, Params params, Consumer<Value> sink) {
+        Streaming.read(driver, tx -> allQuery(tx, userId, params), "movie", sink);
+    }
+
+    private Result allQuery(Transaction tx, String userId, Params params) {
+        return ALL.template(params)
+            .run(tx, Paging.parameters(params, ALL.sortOf(params).name(), "userId", userId));
+    }
+
+    /**
+     * The ids are read once per user and then served from the {@link FavoritesCache}.
+     */
+    @Override
+    public Set<String> ids(String userId) {
+        return FavoritesCache.instance().get(userId, id -> {
+            try (var session = driver.session()) {
+                return session.readTransaction(tx -> QueryLog.run(tx, "FavoriteService.ids", """
+                        MATCH (u:User {userId: $userId})-[:HAS_FAVORITE]->(m)
+                        RETURN m.tmdbId AS id
+                        """, Values.parameters("userId", id)).list(row -> row.get("id").asString()));
+            }
+        });
+    }
+
     /**
      * This method should create a `:HAS_FAVORITE` relationship between the User and Movie ID nodes
      * provided.
@@ -97,10 +123,11 @@ public class FavoriteService {
             RETURN m {.*,favorite:true} as movie
                               
             """;
-                var result = tx
-                    .run(query, Values.parameters("userId", userId, "movieId", movieId));
+                var result = QueryLog.run(tx, "FavoriteService.add",
+                    query, Values.parameters("userId", userId, "movieId", movieId));
                 return result.single().get("movie").asMap();
             });
+            FavoritesCache.instance().added(userId, movieId);
             // Return movie details and `favorite` property
             return favorite;
         } catch (NoSuchRecordException e) {
@@ -131,10 +158,11 @@ public class FavoriteService {
                   DELETE r
                   RETURN m {.*,favorite:false} as movie
                   """;
-                var result = tx
-                    .run(query, Values.parameters("userId", userId, "movieId", movieId));
+                var result = QueryLog.run(tx, "FavoriteService.remove",
+                    query, Values.parameters("userId", userId, "movieId", movieId));
                 return result.single().get("movie").asMap();
             });
+            FavoritesCache.instance().removed(userId, movieId);
             return favorite;
         }catch (NoSuchRecordException e) {
             throw new ValidationException("Could not find the relationship",Map.of("movieId",movieId,"userId",userId));
@@ -0,0 +1,52 @@
+package neoflix.services;
+
+import neoflix.Params;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A user's "My Favorites" list, see {@link FavoriteService} for the Neo4j implementation.
+ */
+public interface Favorites {
+
+    List<Map<String, Object>> all(String userId, Params params);
+
+    default void all(String userId, Params params, Consumer<Value> sink) {
+        all(userId, params).forEach(movie -> sink.accept(Values.value(movie)));
+    }
+
+    /**
+     * @return the tmdbIds of the user's favorites, to set the `favorite` flag of movies read
+     * without a user
+     */
+    Set<String> ids(String userId);
+
+    /**
+     * @return a copy of the movie read without a user, with its `favorite` flag set from the ids
+     */
+    static Map<String, Object> flag(Map<String, Object> movie, Set<String> ids) {
+        var copy = new LinkedHashMap<>(movie);
+        copy.put("favorite", ids.contains(movie.get("tmdbId")));
+        return copy;
+    }
+
+    static List<Map<String, Object>> flag(List<Map<String, Object>> movies, Set<String> ids) {
+        return movies.stream().map(movie -> flag(movie, ids)).toList();
+    }
+
+    /**
+     * @return the movie with `favorite` set to true
+     */
+    Map<String, Object> add(String userId, String movieId);
+
+    /**
+     * @return the movie with `favorite` set to false
+     */
+    Map<String, Object> remove(String userId, String movieId);
+}
@@ -0,0 +1,150 @@
+package neoflix.services;
+
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide cache of the tmdbIds each user has added to their "My Favorites" list.
+ *
+ * An entry is loaded once per user from the database and then kept up to date by
+ * {@link FavoriteService#add(String, String)} and {@link FavoriteService#remove(String, String)},
+ * so the movie listings can set the `favorite` flag without an extra `HAS_FAVORITE` query.
+ *
+ * The cache holds at most `FAVORITES_CACHE_SIZE` users (default 10000) and evicts the least
+ * recently used user when it is full.
+ *
+ * Writes through another app instance don't reach this cache, so an entry is read again
+ * `FAVORITES_CACHE_TTL_SECONDS` (default 60) after it was loaded. Until then a favorite added or
+ * removed on another instance is not reflected here.
+ */
+public class FavoritesCache implements Metrics.Collector {
+
+    private static final FavoritesCache INSTANCE =
+            new FavoritesCache(Integer.parseInt(System.getProperty("FAVORITES_CACHE_SIZE", "10000")),
+                    Long.parseLong(System.getProperty("FAVORITES_CACHE_TTL_SECONDS", "60")) * 1000,
+                    System::currentTimeMillis);
+
+    public static FavoritesCache instance() {
+        return INSTANCE;
+    }
+
+    // loadedAt is when the ids were read from the database, local writes don't move it
+    private record Entry(Set<String> favorites, long loadedAt) {
+        Entry with(Set<String> favorites) {
+            return new Entry(favorites, loadedAt);
+        }
+    }
+
+    // the loads in flight for a user, writes bump the version so a load that raced with one is not cached
+    private static final class Loading {
+        int loaders;
+        long version;
+    }
+
+    private final Map<String, Entry> entries;
+    private final Map<String, Loading> loading = new HashMap<>();
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    FavoritesCache(int maxUsers, long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Return the favorite movie ids of the user, calling the loader if they are not cached yet
+     * or were loaded more than the TTL ago.
+     *
+     * @param userId The ID of the current user
+     * @param loader Reads the favorite movie ids of the user from the database
+     * @return Set<String> immutable set of tmdbIds
+     */
+    public Set<String> get(String userId, Function<String, Collection<String>> loader) {
+        Loading load;
+        long stamp;
+        synchronized (this) {
+            var cached = entries.get(userId);
+            if (cached != null) {
+                if (clock.getAsLong() - cached.loadedAt() < ttlMillis) return cached.favorites();
+                entries.remove(userId);
+            }
+            load = loading.computeIfAbsent(userId, id -> new Loading());
+            load.loaders++;
+            stamp = load.version;
+        }
+        Set<String> loaded = null;
+        long loadedAt = clock.getAsLong();
+        try {
+            loaded = Set.copyOf(loader.apply(userId));
+            return loaded;
+        } finally {
+            synchronized (this) {
+                if (loaded != null && stamp == load.version) entries.put(userId, new Entry(loaded, loadedAt));
+                if (--load.loaders == 0) loading.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * Record a new favorite for a user, if the user is cached.
+     */
+    public synchronized void added(String userId, String movieId) {
+        written(userId);
+        entries.computeIfPresent(userId, (id, entry) -> {
+            if (entry.favorites().contains(movieId)) return entry;
+            var updated = new HashSet<>(entry.favorites());
+            updated.add(movieId);
+            return entry.with(Set.copyOf(updated));
+        });
+    }
+
+    /**
+     * Drop a favorite for a user, if the user is cached.
+     */
+    public synchronized void removed(String userId, String movieId) {
+        written(userId);
+        entries.computeIfPresent(userId, (id, entry) -> {
+            if (!entry.favorites().contains(movieId)) return entry;
+            var updated = new HashSet<>(entry.favorites());
+            updated.remove(movieId);
+            return entry.with(Set.copyOf(updated));
+        });
+    }
+
+    /**
+     * Forget the cached favorites of a user, the next read loads them again.
+     */
+    public synchronized void invalidate(String userId) {
+        written(userId);
+        entries.remove(userId);
+    }
+
+    private void written(String userId) {
+        var load = loading.get(userId);
+        if (load != null) load.version++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        out.single("neoflix_favorites_cache_users", "gauge", "Users with cached favorites.", size());
+    }
+}
@@ -0,0 +1,36 @@
+package neoflix.services;
+
+import java.util.ArrayList;
+
+/**
+ * Builds Lucene queries for the full-text indexes created by {@link neoflix.SchemaManager}.
+ */
+final class FullText {
+
+    private static final String SPECIAL = "+-&|!(){}[]^\"~*?:\\/";
+
+    private FullText() {
+    }
+
+    /**
+     * Turn user input into a typeahead query: every word is escaped and matched as a prefix,
+     * and all words have to match, e.g. `tom ha` becomes `tom* AND ha*`.
+     *
+     * @param input the text typed by the user
+     * @return String the Lucene query, or null if the input has no words
+     */
+    static String prefixQuery(String input) {
+        if (input == null) return null;
+        var terms = new ArrayList<String>();
+        for (String word : input.trim().split("\\s+")) {
+            if (word.isEmpty()) continue;
+            var term = new StringBuilder(word.length() + 2);
+            for (char c : word.toCharArray()) {
+                if (SPECIAL.indexOf(c) >= 0) term.append('\\');
+                term.append(c);
+            }
+            terms.add(term.append('*').toString());
+        }
+        return terms.isEmpty() ? null : String.join(" AND ", terms);
+    }
+}
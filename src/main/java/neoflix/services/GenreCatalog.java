@@ -0,0 +1,174 @@
+package neoflix.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
+
+/**
+ * Serves the genre list and genre details from an immutable in-memory snapshot.
+ *
+ * The snapshot is computed from {@link Genres} on first use and then
+ * recomputed in the background every `GENRE_REFRESH_SECONDS` (default 300, `0` disables the
+ * schedule) once {@link #start()} was called, or when {@link #refresh()} is called. Readers never
+ * wait for a refresh, they keep getting the previous snapshot until the new one is swapped in.
+ *
+ * One catalog is created with the {@link Services}, the age of the snapshot and the time spent
+ * refreshing it are exported on `/metrics`.
+ */
+public class GenreCatalog implements Metrics.Collector {
+
+    /**
+     * @param genres        result of {@link Genres#all()}, with the movie count as `movies`
+     * @param byName        the details {@link Genres#find(String)} returns, for every listed genre with a poster
+     * @param createdAt     epoch millis when the snapshot was taken
+     * @param refreshMillis how long it took to compute the snapshot
+     */
+    public record Snapshot(List<Map<String, Object>> genres, Map<String, Map<String, Object>> byName,
+                           long createdAt, long refreshMillis) {
+        public long ageMillis() {
+            return System.currentTimeMillis() - createdAt;
+        }
+
+        /**
+         * @throws NoSuchRecordException if the snapshot has no such genre, like {@link Genres#find(String)}
+         */
+        public Map<String, Object> find(String name) {
+            var genre = byName.get(name);
+            if (genre == null) throw new NoSuchRecordException("Genre " + name + " not found");
+            return genre;
+        }
+    }
+
+    private final Genres genreService;
+    private final long intervalSeconds;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshNanos = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService scheduler;
+
+    public GenreCatalog(Genres genreService) {
+        this(genreService, Long.parseLong(System.getProperty("GENRE_REFRESH_SECONDS", "300")));
+    }
+
+    GenreCatalog(Genres genreService, long intervalSeconds) {
+        this.genreService = genreService;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    /**
+     * Schedule the background refresh, if `GENRE_REFRESH_SECONDS` is positive. Calling it again
+     * does nothing.
+     */
+    public synchronized void start() {
+        if (intervalSeconds <= 0 || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "genre-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return List<Genre> all genres, as returned by {@link Genres#all()}
+     */
+    public List<Map<String, Object>> all() {
+        return snapshot().genres();
+    }
+
+    /**
+     * Answered from the snapshot only, a genre added since the last refresh is not found until
+     * the next one.
+     *
+     * @param name The name of the genre
+     * @return Genre The genre information
+     * @throws NoSuchRecordException if the snapshot has no such genre, like {@link Genres#find(String)}
+     */
+    public Map<String, Object> find(String name) {
+        return snapshot().find(name);
+    }
+
+    /**
+     * @return the current snapshot, computing the first one if there is none yet
+     */
+    public Snapshot snapshot() {
+        var current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Recompute the snapshot now. Concurrent callers share a single refresh.
+     *
+     * @return the new snapshot
+     */
+    public Snapshot refresh() {
+        var before = snapshot;
+        refreshLock.lock();
+        try {
+            // somebody else refreshed while we were waiting for the lock
+            if (snapshot != before) return snapshot;
+
+            long start = System.nanoTime();
+            var genres = genreService.all();
+            // the details are the rows of the list, there is no query per genre
+            var rows = new ArrayList<Map<String, Object>>();
+            var byName = new HashMap<String, Map<String, Object>>();
+            for (var genre : genres) {
+                var row = new LinkedHashMap<String, Object>();
+                row.put("name", genre.get("name"));
+                // GenreService.all() names the count `movie`, the responses call it `movies` like find()
+                row.put("movies", genre.containsKey("movies") ? genre.get("movies") : genre.get("movie"));
+                row.put("poster", genre.get("poster"));
+                var shared = Collections.unmodifiableMap(row);
+                rows.add(shared);
+                // genre without any rated movie with a poster, find() can't describe it either
+                if (genre.get("poster") != null) byName.put((String) genre.get("name"), shared);
+            }
+            long nanos = System.nanoTime() - start;
+            refreshes.increment();
+            refreshNanos.add(nanos);
+            snapshot = new Snapshot(List.copyOf(rows), Map.copyOf(byName), System.currentTimeMillis(),
+                    TimeUnit.NANOSECONDS.toMillis(nanos));
+            System.out.printf("Genre catalog refreshed: %d genres in %d ms%n", genres.size(), snapshot.refreshMillis());
+            return snapshot;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            failures.increment();
+            System.err.printf("Genre catalog refresh failed, keeping snapshot: %s%n", e.getMessage());
+        }
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        var current = snapshot;
+        if (current != null) {
+            out.single("neoflix_genre_catalog_age_seconds", "gauge", "Age of the genre snapshot.",
+                    current.ageMillis() / 1e3);
+        }
+        out.family("neoflix_genre_catalog_refresh_seconds", "summary", "Time to compute a genre snapshot.");
+        out.sample("neoflix_genre_catalog_refresh_seconds_sum", refreshNanos.sum() / 1e9);
+        out.sample("neoflix_genre_catalog_refresh_seconds_count", refreshes.sum());
+        out.single("neoflix_genre_catalog_refresh_failures_total", "counter",
+                "Background refreshes that failed and kept the old snapshot.", failures.sum());
+    }
+}
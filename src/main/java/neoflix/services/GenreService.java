@@ -1,6 +1,5 @@
 package neoflix.services;
 
-import neoflix.AppUtils;
 import neoflix.ValidationException;
 import org.neo4j.driver.Driver;
 
@@ -11,14 +10,12 @@ import org.neo4j.driver.Session;
 import org.neo4j.driver.Value;
 import org.neo4j.driver.Values;
 
-public class GenreService {
+public class GenreService implements Genres {
     private final Driver driver;
 
-    private final List<Map<String,Object>> genres;
 
     public GenreService(Driver driver) {
         this.driver = driver;
-        this.genres = AppUtils.loadFixtureList("genres");
     }
 
     /**
@@ -55,7 +52,7 @@ public class GenreService {
                     poster:poster} as genre
                     ORDER BY g.name ASC
                     """;
-            var genres = session.readTransaction(tx-> tx.run(query).list(row -> row.get("genre").asMap()));
+            var genres = session.readTransaction(tx-> QueryLog.run(tx, "GenreService.all", query, Map.of()).list(row -> row.get("genre").asMap()));
             return genres;
         }
     }
@@ -90,7 +87,7 @@ public class GenreService {
                    } AS genre
                     """;
             var genres = session
-                .readTransaction(tx -> tx.run(query,Values.parameters("name",name)).single().get("genre").asMap());
+                .readTransaction(tx -> QueryLog.run(tx, "GenreService.find", query, Values.parameters("name",name)).single().get("genre").asMap());
             return genres;
             }
         }
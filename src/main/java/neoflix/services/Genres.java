@@ -0,0 +1,14 @@
+package neoflix.services;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The genre list and genre details, see {@link GenreService} for the Neo4j implementation.
+ */
+public interface Genres {
+
+    List<Map<String, Object>> all();
+
+    Map<String, Object> find(String name);
+}
@@ -1,25 +1,85 @@
 package neoflix.services;
 
-import neoflix.AppUtils;
 import neoflix.NeoflixApp;
 import neoflix.Params;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Transaction;
 import org.neo4j.driver.Value;
 import org.neo4j.driver.Values;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
-public class MovieService {
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class MovieService implements Movies {
+
+  private static final QueryRegistry.Family ALL = QueryRegistry.instance().registerMovieList("MovieService.all", """
+      MATCH (m:Movie)
+      WHERE %1$s IS NOT NULL %2$s
+      RETURN m {
+        .*
+      ,favorite:m.tmdbId IN $favorites} AS movie
+      %3$s
+      %4$s
+      LIMIT $limit
+      """);
+
+  private static final QueryRegistry.Family BY_GENRE = QueryRegistry.instance().registerMovieList("MovieService.byGenre", """
+      MATCH (m:Movie)-[:IN_GENRE]->(:Genre {name: $name})
+      WHERE %1$s IS NOT NULL %2$s
+      RETURN m {
+        .*,
+          favorite: m.tmdbId IN $favorites
+      } AS movie
+      %3$s
+      %4$s
+      LIMIT $limit
+      """);
+
+  private static final QueryRegistry.Family FOR_ACTOR = QueryRegistry.instance().registerMovieList("MovieService.getForActor", """
+      MATCH (:Person {tmdbId: $id})-[:ACTED_IN]->(m:Movie)
+      WHERE %1$s IS NOT NULL %2$s
+      RETURN m {
+        .*,
+          favorite: m.tmdbId IN $favorites
+      } AS movie
+      %3$s
+      %4$s
+      LIMIT $limit
+      """);
+
+  private static final QueryRegistry.Family FOR_DIRECTOR = QueryRegistry.instance().registerMovieList("MovieService.getForDirector", """
+      MATCH (:Person {tmdbId: $id})-[:DIRECTED]->(m:Movie)
+      WHERE %1$s IS NOT NULL %2$s
+      RETURN m {
+        .*,
+          favorite: m.tmdbId IN $favorites
+      } AS movie
+      %3$s
+      %4$s
+      LIMIT $limit
+      """);
+
+  private static final QueryRegistry.Family SEARCH = QueryRegistry.instance().register("MovieService.search",
+      Map.of(Params.Sort.score, "score", Params.Sort.title, "m.title",
+          Params.Sort.released, "m.released", Params.Sort.imdbRating, "m.imdbRating"),
+      Params.Sort.score, "m.tmdbId", """
+      CALL db.index.fulltext.queryNodes('movie_title_plot_fulltext', $search) YIELD node AS m, score
+      WHERE m:Movie %2$s
+      RETURN m {
+        .*,
+          score: score,
+          favorite: m.tmdbId IN $favorites
+      } AS movie
+      %3$s
+      %4$s
+      LIMIT $limit
+      """);
 
   private final Driver driver;
-  private final List<Map<String, Object>> popular;
-  private final List<Map<String, Object>> directedByCoppola;
-  private final List<Map<String, Object>> actedInTomHanks;
-  private final List<Map<String, Object>> comedyMovies;
 
   /**
    * The constructor expects an instance of the Neo4j Driver, which will be used to interact with
@@ -27,10 +87,6 @@ public class MovieService {
    */
   public MovieService(Driver driver) {
     this.driver = driver;
-    this.popular = AppUtils.loadFixtureList("popular");
-    this.directedByCoppola = AppUtils.loadFixtureList("directed_by_coppola");
-    this.actedInTomHanks = AppUtils.loadFixtureList("acted_in_tom_hanks");
-    this.comedyMovies = AppUtils.loadFixtureList("comedy_movies");
   }
 
   /**
@@ -52,24 +108,7 @@ public class MovieService {
       // tag::allcypher[]
       // Execute a query in a new Read Transaction
       var movies = session.readTransaction(tx -> {
-        // Retrieve a list of movies with the
-        // favorite flag appened to the movie's properties
-
-        var favorites = getUserFavorites(tx, userId);
-
-        Params.Sort sort = params.sort(Params.Sort.title);
-        String query = String.format("""
-            MATCH (m:Movie)
-            WHERE m.`%s` IS NOT NULL
-            RETURN m {
-              .*
-            ,favorite:m.tmdbId IN $favorites} AS movie
-            ORDER BY m.`%s` %s
-            SKIP $skip
-            LIMIT $limit
-            """, sort, sort, params.order());
-        var res = tx.run(query, Values
-            .parameters("skip", params.skip(), "limit", params.limit(), "favorites", favorites));
+        var res = allQuery(tx, params, userId);
         // tag::allmovies[]
         // Get a list of Movies from the Result
         return res.list(row -> row.get("movie").asMap());
@@ -84,6 +123,59 @@ public class MovieService {
   }
   // end::all[]
 
+  /**
+   * Streaming variant of {@link #all(Params, String)}, every movie is passed to the sink as soon
+   * as it is read.
+   */
+  public void all(Params params, String userId, Consumer<Value> sink) {
+    Streaming.read(driver, tx -> allQuery(tx, params, userId), "movie", sink);
+  }
+
+  private Result allQuery(Transaction tx, Params params, String userId) {
+    // Retrieve a list of movies with the
+    // favorite flag appened to the movie's properties
+    var favorites = getUserFavorites(tx, userId);
+    return ALL.template(params)
+        .run(tx, Paging.parameters(params, ALL.sortOf(params).name(), "favorites", favorites));
+  }
+
+  /**
+   * Search movies by title and plot with the `movie_title_plot_fulltext` index. Every word of
+   * the `q` parameter is matched as a prefix, and each movie gets a relevance `score`.
+   * <p>
+   * Sorting by `score` orders the results by relevance, the other sorts order the matching
+   * movies by that property. Results are paginated like {@link #all(Params, String)}.
+   * <p>
+   * If a userId value is supplied, a `favorite` boolean property should be returned to signify
+   * whether the user has added the movie to their "My Favorites" list. The results are cached
+   * without a user and the flag is set afterwards, so one cached result serves every user.
+   *
+   * @param params The search text in `q`, and query params for sorting and pagination
+   * @param userId
+   * @return List<Movie> matching movies
+   */
+  public List<Map<String, Object>> search(Params params, String userId) {
+    try (var session = this.driver.session()) {
+      var movies = QueryCache.instance().read("MovieService.search", List.of(params), List.of(),
+              () -> session.readTransaction(tx -> searchQuery(tx, params, null).list(row -> row.get("movie").asMap())));
+      if (userId == null) return movies;
+      return Favorites.flag(movies, getUserFavorites(session, userId));
+    }
+  }
+
+  /**
+   * Streaming variant of {@link #search(Params, String)}.
+   */
+  public void search(Params params, String userId, Consumer<Value> sink) {
+    Streaming.read(driver, tx -> searchQuery(tx, params, userId), "movie", sink);
+  }
+
+  private Result searchQuery(Transaction tx, Params params, String userId) {
+    var favorites = getUserFavorites(tx, userId);
+    return SEARCH.template(params).run(tx, Paging.parameters(params, SEARCH.sortOf(params).name(),
+        "search", FullText.prefixQuery(params.query()), "favorites", favorites));
+  }
+
 
   /**
    * @param {string} id
@@ -101,26 +193,19 @@ public class MovieService {
     // MATCH (m:Movie {tmdbId: $id})
       try (var session = driver.session()) {
 
-          return session.readTransaction(tx->{
-
-              var favorites = getUserFavorites(tx,userId);
-
-              var result = tx.run(String.format("""
+          var movie = QueryCache.instance().read("MovieService.findById", List.of(id), List.of(QueryCache.movie(id)),
+                  () -> session.readTransaction(tx -> QueryLog.run(tx, "MovieService.findById", """
               MATCH (m:Movie {tmdbId: $id})
               RETURN m {
                   .*,
                   actors: [ (a)-[r:ACTED_IN]->(m) | a { .*, role: r.role } ],
                   directors: [ (d)-[:DIRECTED]->(m) | d { .* } ],
-                  genres: [ (m)-[:IN_GENRE]->(g) | g { .name }],
-                  favorite: m.tmdbId IN $favorites
+                  genres: [ (m)-[:IN_GENRE]->(g) | g { .name }]
               } AS movie
               LIMIT 1
-              """),Values.parameters("id",userId,"favorites",favorites)).single().get("movie").asMap();
-
-              return result;
-          });
-
-
+              """, Values.parameters("id", id)).single().get("movie").asMap()));
+          // the cached movie is shared by all users, its `favorite` flag is set on a copy
+          return Favorites.flag(movie, userId == null ? Set.of() : getUserFavorites(session, userId));
       }
 
     //return popular.stream().filter(m -> id.equals(m.get("tmdbId"))).findAny().get();
@@ -151,29 +236,7 @@ public class MovieService {
       try (var session = driver.session()) {
 
          var movies = session.readTransaction(tx->{
-
-          var favorites = getUserFavorites(tx,userId);
-
-           String query = """
-                MATCH (:Movie {tmdbId: $id})-[:IN_GENRE|ACTED_IN|DIRECTED]->()<-[:IN_GENRE|ACTED_IN|DIRECTED]-(m)
-                WHERE m.imdbRating IS NOT NULL
-                                
-                WITH m, count(*) AS inCommon
-                WITH m, inCommon, m.imdbRating * inCommon AS score
-                ORDER BY score DESC
-                                
-                SKIP $skip
-                LIMIT $limit
-                                
-                RETURN m {
-                    .*,
-                    score: score,
-                    favorite: m.tmdbId IN $favorites
-                } AS movie
-                """;
-              var result = tx.run(query, Values
-                  .parameters("id", userId, "skip", params.skip(),"limit",params.limit(),"favorites",favorites
-                      )).list(row->row.get("movie").asMap());
+              var result = similarQuery(tx, id, params, userId).list(row->row.get("movie").asMap());
               return result;
 
           });
@@ -185,6 +248,37 @@ public class MovieService {
   }
   // end::getSimilarMovies[]
 
+  /**
+   * Streaming variant of {@link #getSimilarMovies(String, Params, String)}.
+   */
+  public void getSimilarMovies(String id, Params params, String userId, Consumer<Value> sink) {
+    Streaming.read(driver, tx -> similarQuery(tx, id, params, userId), "movie", sink);
+  }
+
+  private Result similarQuery(Transaction tx, String id, Params params, String userId) {
+    var favorites = getUserFavorites(tx,userId);
+
+    String query = """
+         MATCH (:Movie {tmdbId: $id})-[:IN_GENRE|ACTED_IN|DIRECTED]->()<-[:IN_GENRE|ACTED_IN|DIRECTED]-(m)
+         WHERE m.imdbRating IS NOT NULL
+                         
+         WITH m, count(*) AS inCommon
+         WITH m, inCommon, m.imdbRating * inCommon AS score
+         ORDER BY score DESC
+                         
+         SKIP $skip
+         LIMIT $limit
+                         
+         RETURN m {
+             .*,
+             score: score,
+             favorite: m.tmdbId IN $favorites
+         } AS movie
+         """;
+    return QueryLog.run(tx, "MovieService.getSimilarMovies", query, Values
+        .parameters("id", id, "skip", params.skip(),"limit",params.limit(),"favorites",favorites));
+  }
+
 
   /**
    * This method should return a paginated list of movies that have a relationship to the supplied
@@ -211,25 +305,7 @@ public class MovieService {
           try (var session = driver.session()) {
               // Execute a query in a new Read Transaction
               return session.readTransaction((tx) -> {
-                  // Get an array of IDs for the User's favorite movies
-                  var favorites = getUserFavorites(tx, userId);
-
-                  // Retrieve a list of movies with the
-                  // favorite flag append to the movie's properties
-                  var result = tx.run(
-                      String.format("""
-                            MATCH (m:Movie)-[:IN_GENRE]->(:Genre {name: $name})
-                            WHERE m.`%s` IS NOT NULL
-                            RETURN m {
-                              .*,
-                                favorite: m.tmdbId IN $favorites
-                            } AS movie
-                            ORDER BY m.`%s` %s
-                            SKIP $skip
-                            LIMIT $limit
-                          """, params.sort(), params.sort(), params.order()),
-                      Values.parameters("skip", params.skip(), "limit", params.limit(),
-                          "favorites", favorites, "name", name));
+                  var result = byGenreQuery(tx, name, params, userId);
                   var movies = result.list(row -> row.get("movie").asMap());
                   return movies;
               });
@@ -238,6 +314,23 @@ public class MovieService {
   }
   // end::getByGenre[]
 
+  /**
+   * Streaming variant of {@link #byGenre(String, Params, String)}.
+   */
+  public void byGenre(String name, Params params, String userId, Consumer<Value> sink) {
+      Streaming.read(driver, tx -> byGenreQuery(tx, name, params, userId), "movie", sink);
+  }
+
+  private Result byGenreQuery(Transaction tx, String name, Params params, String userId) {
+      // Get an array of IDs for the User's favorite movies
+      var favorites = getUserFavorites(tx, userId);
+
+      // Retrieve a list of movies with the
+      // favorite flag append to the movie's properties
+      return BY_GENRE.template(params).run(tx,
+          Paging.parameters(params, BY_GENRE.sortOf(params).name(), "favorites", favorites, "name", name));
+  }
+
   /**
    * This method should return a paginated list of movies that have an ACTED_IN relationship to a
    * Person with the id supplied
@@ -264,24 +357,7 @@ public class MovieService {
 
           // Execute a query in a new Read Transaction
           var movies = session.readTransaction(tx -> {
-              // Get an array of IDs for the User's favorite movies
-              var favorites = getUserFavorites(tx, userId);
-              var sort = params.sort(Params.Sort.title);
-
-              // Retrieve a list of movies with the
-              // favorite flag appended to the movie's properties
-              String query = String.format("""
-                      MATCH (:Person {tmdbId: $id})-[:ACTED_IN]->(m:Movie)
-                      WHERE m.`%s` IS NOT NULL
-                      RETURN m {
-                        .*,
-                          favorite: m.tmdbId IN $favorites
-                      } AS movie
-                      ORDER BY m.`%s` %s
-                      SKIP $skip
-                      LIMIT $limit
-                    """, sort, sort, params.order());
-              var res = tx.run(query, Values.parameters("skip", params.skip(), "limit", params.limit(), "favorites", favorites, "id", actorId));
+              var res = forActorQuery(tx, actorId, params, userId);
               // Get a list of Movies from the Result
               return res.list(row -> row.get("movie").asMap());
           });
@@ -290,6 +366,23 @@ public class MovieService {
   }
   // end::getForActor[]
 
+  /**
+   * Streaming variant of {@link #getForActor(String, Params, String)}.
+   */
+  public void getForActor(String actorId, Params params, String userId, Consumer<Value> sink) {
+      Streaming.read(driver, tx -> forActorQuery(tx, actorId, params, userId), "movie", sink);
+  }
+
+  private Result forActorQuery(Transaction tx, String actorId, Params params, String userId) {
+      // Get an array of IDs for the User's favorite movies
+      var favorites = getUserFavorites(tx, userId);
+
+      // Retrieve a list of movies with the
+      // favorite flag appended to the movie's properties
+      return FOR_ACTOR.template(params)
+          .run(tx, Paging.parameters(params, FOR_ACTOR.sortOf(params).name(), "favorites", favorites, "id", actorId));
+  }
+
   /**
    * This method should return a paginated list of movies that have an DIRECTED relationship to a
    * Person with the id supplied
@@ -316,24 +409,7 @@ public class MovieService {
 
           // Execute a query in a new Read Transaction
           var movies = session.readTransaction(tx -> {
-              // Get an array of IDs for the User's favorite movies
-              var favorites = getUserFavorites(tx, userId);
-              var sort = params.sort(Params.Sort.title);
-
-              // Retrieve a list of movies with the
-              // favorite flag appended to the movie's properties
-              String query = String.format("""
-                      MATCH (:Person {tmdbId: $id})-[:DIRECTED]->(m:Movie)
-                      WHERE m.`%s` IS NOT NULL
-                      RETURN m {
-                        .*,
-                          favorite: m.tmdbId IN $favorites
-                      } AS movie
-                      ORDER BY m.`%s` %s
-                      SKIP $skip
-                      LIMIT $limit
-                    """, sort, sort, params.order());
-              var res = tx.run(query, Values.parameters("skip", params.skip(), "limit", params.limit(), "favorites", favorites, "id", directorId));
+              var res = forDirectorQuery(tx, directorId, params, userId);
               // Get a list of Movies from the Result
               return res.list(row -> row.get("movie").asMap());
           });
@@ -342,28 +418,60 @@ public class MovieService {
   }
   // end::getForDirector[]
 
+  /**
+   * Streaming variant of {@link #getForDirector(String, Params, String)}.
+   */
+  public void getForDirector(String directorId, Params params, String userId, Consumer<Value> sink) {
+      Streaming.read(driver, tx -> forDirectorQuery(tx, directorId, params, userId), "movie", sink);
+  }
+
+  private Result forDirectorQuery(Transaction tx, String directorId, Params params, String userId) {
+      // Get an array of IDs for the User's favorite movies
+      var favorites = getUserFavorites(tx, userId);
+
+      // Retrieve a list of movies with the
+      // favorite flag appended to the movie's properties
+      return FOR_DIRECTOR.template(params)
+          .run(tx, Paging.parameters(params, FOR_DIRECTOR.sortOf(params).name(), "favorites", favorites, "id", directorId));
+  }
+
 
   /**
    * This function should return a list of tmdbId properties for the movies that the user has added
    * to their 'My Favorites' list.
+   * <p>
+   * The ids are read once per user and then served from the {@link FavoritesCache}, which
+   * {@link FavoriteService} keeps up to date.
    *
    * @param tx     The open transaction
    * @param userId The ID of the current user
-   * @return List<String> movieIds of favorite movies
+   * @return Set<String> movieIds of favorite movies
    */
   // tag::getUserFavorites[]
-  private List<String> getUserFavorites(Transaction tx, String userId) {
+  private Set<String> getUserFavorites(Transaction tx, String userId) {
 
       if (userId == null) {
-          return List.of();
+          return Set.of();
       }
-    var favoriteResult = tx.run("""
-            MATCH (u:User {userId: $userId})-[:HAS_FAVORITE]->(m)
-            RETURN m.tmdbId AS id
-        """, Values.parameters("userId", userId));
-    // Extract the `id` value returned by the cypher query
-    return favoriteResult.list(row -> row.get("id").asString());
+      return FavoritesCache.instance().get(userId, id -> favoriteIds(tx, id));
+  }
+
+  private static List<String> favoriteIds(Transaction tx, String userId) {
+      var favoriteResult = QueryLog.run(tx, "MovieService.getUserFavorites", """
+              MATCH (u:User {userId: $userId})-[:HAS_FAVORITE]->(m)
+              RETURN m.tmdbId AS id
+          """, Values.parameters("userId", userId));
+      // Extract the `id` value returned by the cypher query
+      return favoriteResult.list(row -> row.get("id").asString());
   }
   // end::getUserFavorites[]
 
+  /**
+   * {@link #getUserFavorites(Transaction, String)} after a cached read, a transaction is only
+   * started when the user's favorites are not cached either.
+   */
+  private Set<String> getUserFavorites(Session session, String userId) {
+      return FavoritesCache.instance().get(userId, id -> session.readTransaction(tx -> favoriteIds(tx, id)));
+  }
+
 }
@@ -0,0 +1,56 @@
+package neoflix.services;
+
+import neoflix.Params;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Movie listings and details, see {@link MovieService} for the Neo4j implementation.
+ *
+ * The streaming variants pass every movie to the sink, implementations that read from a
+ * database override them to write rows as they arrive.
+ */
+public interface Movies {
+
+    List<Map<String, Object>> all(Params params, String userId);
+
+    default void all(Params params, String userId, Consumer<Value> sink) {
+        all(params, userId).forEach(movie -> sink.accept(Values.value(movie)));
+    }
+
+    List<Map<String, Object>> search(Params params, String userId);
+
+    default void search(Params params, String userId, Consumer<Value> sink) {
+        search(params, userId).forEach(movie -> sink.accept(Values.value(movie)));
+    }
+
+    Map<String, Object> findById(String id, String userId);
+
+    List<Map<String, Object>> getSimilarMovies(String id, Params params, String userId);
+
+    default void getSimilarMovies(String id, Params params, String userId, Consumer<Value> sink) {
+        getSimilarMovies(id, params, userId).forEach(movie -> sink.accept(Values.value(movie)));
+    }
+
+    List<Map<String, Object>> byGenre(String name, Params params, String userId);
+
+    default void byGenre(String name, Params params, String userId, Consumer<Value> sink) {
+        byGenre(name, params, userId).forEach(movie -> sink.accept(Values.value(movie)));
+    }
+
+    List<Map<String, Object>> getForActor(String actorId, Params params, String userId);
+
+    default void getForActor(String actorId, Params params, String userId, Consumer<Value> sink) {
+        getForActor(actorId, params, userId).forEach(movie -> sink.accept(Values.value(movie)));
+    }
+
+    List<Map<String, Object>> getForDirector(String directorId, Params params, String userId);
+
+    default void getForDirector(String directorId, Params params, String userId, Consumer<Value> sink) {
+        getForDirector(directorId, params, userId).forEach(movie -> sink.accept(Values.value(movie)));
+    }
+}
@@ -0,0 +1,136 @@
+package neoflix.services;
+
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of anonymous catalog pages, the movie listings as read without a user.
+ *
+ * A page is keyed by its route, e.g. `MovieService.byGenre`, and everything the route reads
+ * with: the genre, person or movie id and the sort, order, skip, limit and cursor of the
+ * {@link neoflix.Params}. The `favorite` flag is the only user specific part of these pages, it is
+ * set per user on a copy after the cached page is read, see {@link CoalescingMovies}.
+ *
+ * No write of the app changes these pages: favorites are set per user and ratings are not part
+ * of the listings. The catalog itself is only changed by an import outside the app, so pages are
+ * kept for `PAGE_CACHE_SECONDS` (default 300). After an import, restart the app or call
+ * {@link #clear()}, otherwise the old pages are served until they expire. At most
+ * `PAGE_CACHE_SIZE` pages (default 2000) are held, the least recently used page is evicted when
+ * the cache is full. `PAGE_CACHE_SIZE=0` disables the cache.
+ */
+public final class PageCache implements Metrics.Collector {
+
+    private record Key(String route, List<Object> arguments) {
+    }
+
+    private record Page(List<Map<String, Object>> rows, long expiresAt) {
+    }
+
+    private static final class Stats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+    }
+
+    private final int maxPages;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<Key, Page> pages;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+
+    public PageCache() {
+        this(Integer.parseInt(System.getProperty("PAGE_CACHE_SIZE", "2000")),
+                Long.parseLong(System.getProperty("PAGE_CACHE_SECONDS", "300")) * 1000, System::currentTimeMillis);
+    }
+
+    PageCache(int maxPages, long ttlMillis, LongSupplier clock) {
+        this.maxPages = maxPages;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Page> eldest) {
+                if (size() <= maxPages) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Return the cached page, calling the loader if it is not cached or has expired.
+     *
+     * @param route     stable name of the listing, e.g. `MovieService.all`
+     * @param arguments everything the page depends on, compared with equals
+     * @param load      reads the anonymous page
+     * @return List<Map> the rows of the page, shared by all callers and not to be modified
+     */
+    public List<Map<String, Object>> get(String route, List<Object> arguments,
+                                         Supplier<List<Map<String, Object>>> load) {
+        if (maxPages <= 0) return load.get();
+        var key = new Key(route, arguments);
+        var stats = this.stats.computeIfAbsent(route, k -> new Stats());
+        synchronized (this) {
+            var page = pages.get(key);
+            if (page != null) {
+                if (clock.getAsLong() < page.expiresAt()) {
+                    stats.hits.increment();
+                    return page.rows();
+                }
+                pages.remove(key);
+            }
+        }
+        stats.misses.increment();
+        var rows = List.copyOf(load.get());
+        synchronized (this) {
+            pages.put(key, new Page(rows, clock.getAsLong() + ttlMillis));
+        }
+        return rows;
+    }
+
+    /**
+     * Drop every page, e.g. after the catalog was imported again.
+     */
+    public synchronized void clear() {
+        pages.clear();
+    }
+
+    public boolean enabled() {
+        return maxPages > 0;
+    }
+
+    public synchronized int size() {
+        return pages.size();
+    }
+
+    long hits(String route) {
+        var stats = this.stats.get(route);
+        return stats == null ? 0 : stats.hits.sum();
+    }
+
+    long misses(String route) {
+        var stats = this.stats.get(route);
+        return stats == null ? 0 : stats.misses.sum();
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        var routes = stats.keySet().stream().sorted().toList();
+        out.family("neoflix_page_cache_requests_total", "counter", "Anonymous page reads by route, from the cache or not.");
+        for (var route : routes) {
+            out.sample("neoflix_page_cache_requests_total", stats.get(route).hits.sum(), "route", route, "result", "hit");
+            out.sample("neoflix_page_cache_requests_total", stats.get(route).misses.sum(), "route", route, "result", "miss");
+        }
+        out.single("neoflix_page_cache_pages", "gauge", "Anonymous pages cached.", size());
+        out.single("neoflix_page_cache_evictions_total", "counter", "Pages evicted because the cache was full.",
+                evictions.sum());
+    }
+}
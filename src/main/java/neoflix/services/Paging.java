@@ -0,0 +1,72 @@
+package neoflix.services;
+
+import neoflix.Params;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cypher fragments and parameters shared by the paginated list queries.
+ *
+ * A page is either addressed with `SKIP $skip LIMIT $limit`, or, when the request carries an
+ * `after` cursor, with a keyset predicate on the sort key and a unique id:
+ *
+ * <pre>
+ * WHERE ... AND m.title >= $afterKey AND (m.title > $afterKey OR m.tmdbId > $afterId)
+ * ORDER BY m.title ASC, m.tmdbId ASC
+ * LIMIT $limit
+ * </pre>
+ *
+ * so the server can start reading at the cursor position instead of counting off skipped rows.
+ * The range on the sort key is a separate conjunct, a top-level OR could not be planned as an
+ * index seek.
+ */
+final class Paging {
+
+    private Paging() {
+    }
+
+    /**
+     * @return the keyset predicate, to be appended to an existing WHERE clause, or an empty string
+     */
+    static String after(String key, String id, Params.Order order, boolean cursor) {
+        if (!cursor) return "";
+        String op = order == Params.Order.DESC ? "<" : ">";
+        return String.format("AND %1$s %3$s= $afterKey AND (%1$s %3$s $afterKey OR %2$s %3$s $afterId)", key, id, op);
+    }
+
+    /**
+     * @return ORDER BY on the sort key with the id as tie breaker, so that pages are stable
+     */
+    static String orderBy(String key, String id, Params.Order order) {
+        return String.format("ORDER BY %1$s %3$s, %2$s %3$s", key, id, order);
+    }
+
+    /**
+     * @return SKIP clause, omitted when paging with a cursor
+     */
+    static String skip(boolean cursor) {
+        return cursor ? "" : "SKIP $skip";
+    }
+
+    /**
+     * @param params      the request params, the cursor is checked against `field`
+     * @param field       the name of the sort key the query orders by
+     * @param extraParams additional query parameters as key, value pairs
+     * @return parameters for `$skip`, `$limit`, `$afterKey` and `$afterId` plus the extra ones
+     */
+    static Map<String, Object> parameters(Params params, String field, Object... extraParams) {
+        var parameters = new HashMap<String, Object>();
+        parameters.put("skip", params.skip());
+        parameters.put("limit", params.limit());
+        if (params.after() != null) {
+            var cursor = params.after().requireField(field);
+            parameters.put("afterKey", cursor.key());
+            parameters.put("afterId", cursor.id());
+        }
+        for (int i = 0; i < extraParams.length; i += 2) {
+            parameters.put((String) extraParams[i], extraParams[i + 1]);
+        }
+        return parameters;
+    }
+}
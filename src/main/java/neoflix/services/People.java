@@ -0,0 +1,33 @@
+package neoflix.services;
+
+import neoflix.Params;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * People listings and profiles, see {@link PeopleService} for the Neo4j implementation.
+ */
+public interface People {
+
+    /**
+     * @return people ordered by the sort and order of the params, searched by name when `q` is set
+     */
+    List<Map<String, Object>> all(Params params);
+
+    default void all(Params params, Consumer<Value> sink) {
+        all(params).forEach(person -> sink.accept(Values.value(person)));
+    }
+
+    /**
+     * @return the sort {@link #all(Params)} orders by for these params
+     */
+    Params.Sort sortOf(Params params);
+
+    Map<String, Object> findById(String id);
+
+    List<Map<String, Object>> getSimilarPeople(String id, Params params);
+}
@@ -1,19 +1,74 @@
 package neoflix.services;
 
-import neoflix.AppUtils;
 import neoflix.AuthUtils;
 import neoflix.Params;
+import neoflix.ValidationException;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
 import org.neo4j.driver.Values;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+
+public class PeopleService implements People {
+    // born is a date, so a cursor page seeks the person_born index, see #parameters
+    private static final QueryRegistry.Family ALL = QueryRegistry.instance().register("PeopleService.all",
+            Map.of(Params.Sort.name, "p.name", Params.Sort.born, "p.born"), Params.Sort.name, "p.tmdbId", """
+            MATCH (p:Person)
+            WHERE p.name IS NOT NULL AND %1$s IS NOT NULL %2$s
+            RETURN p {.*} as person
+            %3$s
+            %4$s
+            LIMIT $limit
+            """);
+
+    private static final QueryRegistry.Family SEARCH = QueryRegistry.instance().register("PeopleService.search",
+            Map.of(Params.Sort.score, "score", Params.Sort.name, "p.name", Params.Sort.born, "p.born"),
+            Params.Sort.score, "p.tmdbId", """
+            CALL db.index.fulltext.queryNodes('person_name_fulltext', $search) YIELD node AS p, score
+            WHERE p:Person AND %1$s IS NOT NULL %2$s
+            RETURN p {.*, score: score} as person
+            %3$s
+            %4$s
+            LIMIT $limit
+            """);
+
+    /*
+     * The number of movies a person acted in or directed is counted per row and can't be backed
+     * by an index: every page sorted by it, with a cursor or not, counts and sorts all the people.
+     * Only these variants count them, the cursor is accepted so that all sorts page alike.
+     */
+    private static final String MOVIE_COUNT = "size((p)-[:ACTED_IN|DIRECTED]->())";
+
+    private static final QueryRegistry.Family ALL_BY_MOVIE_COUNT = QueryRegistry.instance().register("PeopleService.all",
+            Map.of(Params.Sort.movieCount, MOVIE_COUNT), Params.Sort.movieCount, "p.tmdbId", """
+            MATCH (p:Person)
+            WHERE p.name IS NOT NULL %2$s
+            RETURN p {.*, movieCount: %1$s} as person
+            %3$s
+            %4$s
+            LIMIT $limit
+            """);
+
+    private static final QueryRegistry.Family SEARCH_BY_MOVIE_COUNT = QueryRegistry.instance().register("PeopleService.search",
+            Map.of(Params.Sort.movieCount, MOVIE_COUNT), Params.Sort.movieCount, "p.tmdbId", """
+            CALL db.index.fulltext.queryNodes('person_name_fulltext', $search) YIELD node AS p, score
+            WHERE p:Person %2$s
+            RETURN p {.*, movieCount: %1$s, score: score} as person
+            %3$s
+            %4$s
+            LIMIT $limit
+            """);
 
-public class PeopleService {
     private final Driver driver;
-    private final List<Map<String,Object>> people;
 
     /**
      * The constructor expects an instance of the Neo4j Driver, which will be
@@ -23,7 +78,6 @@ public class PeopleService {
      */
     public PeopleService(Driver driver) {
         this.driver = driver;
-        this.people = AppUtils.loadFixtureList("people");
     }
 
     /**
@@ -34,34 +88,75 @@ public class PeopleService {
      * number passed as `limit`.  The `skip` variable should be used to skip a
      * certain number of rows.
      *
+     * A `q` is looked up in the `person_name_fulltext` index with every word matched as a
+     * prefix, so partial input typed into a search box already finds people, and each of them
+     * gets a relevance `score` to sort by.
+     *
      * @param params        Used to filter on the person's name, and query parameters for pagination and ordering
      * @return List<Person>
      */
     // tag::all[]
     public List<Map<String,Object>> all(Params params) {
-        // Get a list of people from the database
-
+        // Get a list of people from the database, searching by name goes through the full-text index
         try(var session = driver.session()){
-            var person = session.readTransaction(tx->{
-                var query = """
-                    MATCH (p:Person) 
-                    WHERE $q IS null OR p.name CONTAINS $q
-                    RETURN p {.*} as person
-                    ORDER BY p.name ASC
-                    SKIP $skip
-                    LIMIT $limit
-                    """;
-                var result = tx
-                    .run(query, Values.parameters("q",params.query(),"skip", params.skip(), "limit", params.limit()))
+            var person = QueryCache.instance().read("PeopleService.all", Arrays.asList(params), List.of(),
+                    () -> session.readTransaction(tx->{
+                var result = allQuery(tx, params)
                     .list(r -> r.get("person").asMap());
                 return result;
-            });
+            }));
             return person;
 
         }
     }
     // end::all[]
 
+    /**
+     * Streaming variant of {@link #all(Params)}, every person is passed to the sink as soon
+     * as it is read.
+     */
+    public void all(Params params, Consumer<Value> sink) {
+        Streaming.read(driver, tx -> allQuery(tx, params), "person", sink);
+    }
+
+    private Result allQuery(Transaction tx, Params params) {
+        var family = family(params);
+        var search = FullText.prefixQuery(params.query());
+        if (search != null) {
+            return family.template(params).run(tx, parameters(params, family.sortOf(params), "search", search));
+        }
+        return family.template(params).run(tx, parameters(params, family.sortOf(params)));
+    }
+
+    private static QueryRegistry.Family family(Params params) {
+        boolean search = FullText.prefixQuery(params.query()) != null;
+        if (params.sort() == Params.Sort.movieCount) return search ? SEARCH_BY_MOVIE_COUNT : ALL_BY_MOVIE_COUNT;
+        return search ? SEARCH : ALL;
+    }
+
+    /**
+     * {@link Paging#parameters(Params, String, Object...)}, with the ISO text a cursor keeps for
+     * `born` turned back into a date to compare with `p.born`.
+     */
+    private static Map<String, Object> parameters(Params params, Params.Sort sort, Object... extraParams) {
+        var parameters = Paging.parameters(params, sort.name(), extraParams);
+        if (sort == Params.Sort.born && parameters.get("afterKey") instanceof String key) {
+            try {
+                parameters.put("afterKey", LocalDate.parse(key));
+            } catch (DateTimeParseException e) {
+                throw new ValidationException("Invalid cursor", Map.of("after", "Invalid cursor"));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @return the sort {@link #all(Params)} actually orders the people by for these params
+     */
+    public Params.Sort sortOf(Params params) {
+        return family(params).sortOf(params);
+    }
+
     /**
      * Find a user by their ID.
      *
@@ -74,7 +169,8 @@ public class PeopleService {
     public Map<String, Object> findById(String id) {
         //  Find a user by their ID
         try (var session = driver.session()) {
-             var users = session.readTransaction(tx-> {
+             var users = QueryCache.instance().read("PeopleService.findById", Arrays.asList(id), List.of(),
+                     () -> session.readTransaction(tx-> {
 
                  var query = """
                     MATCH (p:Person {tmdbId: $id})
@@ -85,9 +181,9 @@ public class PeopleService {
                     } AS person
                      """;
 
-                var person = tx.run(query, Values.parameters("id", id)).single().get("person").asMap();
+                var person = QueryLog.run(tx, "PeopleService.findById", query, Values.parameters("id", id)).single().get("person").asMap();
                 return person;
-            });
+            }));
              return users;
         }
 
@@ -109,8 +205,9 @@ public class PeopleService {
 
         try (var session = driver.session()) {
 
-            var person = session.readTransaction(tx->{
-                var result = tx.run(String.format("""
+            var person = QueryCache.instance().read("PeopleService.getSimilarPeople", Arrays.asList(id, params), List.of(),
+                    () -> session.readTransaction(tx->{
+                var result = QueryLog.run(tx, "PeopleService.getSimilarPeople", String.format("""
                         MATCH (:Person {tmdbId: $id})-[:ACTED_IN|DIRECTED]->(m)<-[r:ACTED_IN|DIRECTED]-(p)
                         RETURN p {
                           .*,
@@ -125,7 +222,7 @@ public class PeopleService {
                     Values.parameters("id", id, "skip", params.skip(), "limit", params.limit()))
                     .list(r -> r.get("person").asMap());
                 return  result;
-            }); return  person;
+            })); return  person;
 
         }
     }
@@ -0,0 +1,515 @@
+package neoflix.services;
+
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide read-through cache of query results, keyed by the name of the query and the
+ * arguments it was run with.
+ *
+ * The services wrap their read transactions in {@link #read}, which returns a cached result
+ * or runs the transaction and caches what it returned. Every result is tagged with what it
+ * depends on, e.g. {@link #movie(String)} for the ratings of a movie, and the writes publish the
+ * tags they change through {@link #invalidate(String...)}, which drops every entry with one of the
+ * tags. A read that raced with an invalidation is not cached.
+ *
+ * Results are cached without a user: the services read the anonymous rows and set the `favorite`
+ * flags afterwards from the {@link FavoritesCache}, as {@link CoalescingMovies} does. A key per
+ * user would hold the same rows once for every user and crowd the shared results out of the cache.
+ *
+ * The movie listings are not cached here, their anonymous pages are cached by {@link PageCache}
+ * in front of the service. No write of the app changes those pages, and caching them here too
+ * would hold every page twice.
+ *
+ * The cache holds results of at most `QUERY_CACHE_MAX_BYTES` (default 64 MiB, `0` disables the
+ * cache), measured with {@link #estimateBytes(Object)}. Admission follows W-TinyLFU: new entries
+ * go to a small LRU window, and an entry leaving the window only replaces the least recently used
+ * entries of the main area if it was asked for more often than each of them, according to a
+ * {@link FrequencySketch} of recent reads. So a burst of one-off reads, e.g. a crawler walking
+ * deep pages, doesn't push out the popular pages.
+ *
+ * Hits don't lock: the entry is looked up in a concurrent map and the access is recorded in a
+ * small lossy {@link ReadBuffer}. The buffer is replayed into the frequency sketch and the LRU
+ * order under the lock, by the next miss or once it is half full, as Caffeine does. A full
+ * buffer drops accesses, which only makes the LRU order and the counts a little less exact.
+ *
+ * Entries expire after `QUERY_CACHE_TTL_SECONDS` (default 60), per query the TTL is set with
+ * `QUERY_CACHE_TTLS`, e.g. `PeopleService.findById=600,RatingService.forMovie=0`, `0` means the
+ * query is not cached.
+ */
+public final class QueryCache implements Metrics.Collector {
+
+    private static final QueryCache INSTANCE = new QueryCache(
+            Long.parseLong(System.getProperty("QUERY_CACHE_MAX_BYTES", String.valueOf(64L << 20))),
+            Long.parseLong(System.getProperty("QUERY_CACHE_TTL_SECONDS", "60")) * 1000,
+            ttls(System.getProperty("QUERY_CACHE_TTLS")), System::currentTimeMillis);
+
+    public static QueryCache instance() {
+        return INSTANCE;
+    }
+
+    // share of the capacity used by the admission window, as in W-TinyLFU
+    private static final double WINDOW_SHARE = 0.01;
+    // the entry, its key and the bookkeeping around them
+    private static final long ENTRY_OVERHEAD = 160;
+    // typical size of an entry, to size the frequency sketch
+    private static final long TYPICAL_ENTRY_BYTES = 4096;
+
+    public static String movie(String id) {
+        return "movie:" + id;
+    }
+
+    public static String user(String id) {
+        return "user:" + id;
+    }
+
+    private record Key(String name, List<Object> arguments) {
+    }
+
+    private record Entry(Key key, Object value, long bytes, long expiresAt, List<String> tags) {
+    }
+
+    private static final class Stats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evicted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder expired = new LongAdder();
+        final LongAdder invalidated = new LongAdder();
+        // guarded by the lock
+        long bytes;
+        long entries;
+    }
+
+    private final long maxBytes;
+    private final long windowMaxBytes;
+    private final long mainMaxBytes;
+    private final long defaultTtlMillis;
+    private final Map<String, Long> ttlMillis;
+    private final LongSupplier clock;
+    private final FrequencySketch sketch;
+    // every entry, for lookups without the lock
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ReadBuffer reads = new ReadBuffer(128);
+    // guards everything below, hits only take it to drain the read buffer
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> byTag = new HashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private long windowBytes;
+    private long mainBytes;
+    // bumped on every invalidation, so a read that raced with a write is not cached
+    private long invalidations;
+
+    /**
+     * @param ttlMillis TTL per query name, overriding the default
+     */
+    QueryCache(long maxBytes, long defaultTtlMillis, Map<String, Long> ttlMillis, LongSupplier clock) {
+        this.maxBytes = maxBytes;
+        this.windowMaxBytes = (long) (maxBytes * WINDOW_SHARE);
+        this.mainMaxBytes = maxBytes - windowMaxBytes;
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.ttlMillis = Map.copyOf(ttlMillis);
+        this.clock = clock;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(1024, maxBytes / TYPICAL_ENTRY_BYTES)));
+    }
+
+    static Map<String, Long> ttls(String setting) {
+        var ttls = new HashMap<String, Long>();
+        if (setting == null || setting.isBlank()) return ttls;
+        for (var entry : setting.split(",")) {
+            var parts = entry.split("=");
+            if (parts.length != 2) throw new IllegalArgumentException("Invalid QUERY_CACHE_TTLS entry " + entry);
+            ttls.put(parts[0].trim(), Long.parseLong(parts[1].trim()) * 1000);
+        }
+        return ttls;
+    }
+
+    /**
+     * Return the cached result of the query, running the read if it is not cached or expired.
+     *
+     * @param name      stable name of the query, e.g. `MovieService.all`
+     * @param arguments everything the result depends on, compared with equals
+     * @param tags      what the result depends on, see {@link #invalidate(String...)}
+     * @param read      runs the query, its result must not be modified afterwards
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String name, List<Object> arguments, Collection<String> tags, Supplier<T> read) {
+        long ttl = ttlMillis.getOrDefault(name, defaultTtlMillis);
+        if (maxBytes <= 0 || ttl <= 0) return read.get();
+        var key = new Key(name, arguments);
+        var stats = stats(name);
+        var cached = entries.get(key);
+        if (cached != null && clock.getAsLong() < cached.expiresAt()) {
+            stats.hits.increment();
+            if (reads.offer(key) && lock.tryLock()) {
+                try {
+                    drain();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return (T) cached.value();
+        }
+        long stamp;
+        lock.lock();
+        try {
+            drain();
+            sketch.increment(key);
+            var entry = entries.get(key);
+            if (entry != null && clock.getAsLong() >= entry.expiresAt()) {
+                remove(entry);
+                stats.expired.increment();
+            }
+            stamp = invalidations;
+        } finally {
+            lock.unlock();
+        }
+        stats.misses.increment();
+        T value = read.get();
+        long bytes = ENTRY_OVERHEAD + estimateBytes(arguments) + estimateBytes(value);
+        lock.lock();
+        try {
+            if (stamp == invalidations && !entries.containsKey(key)) {
+                admit(new Entry(key, value, bytes, clock.getAsLong() + ttl, List.copyOf(tags)));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Replay the buffered hits into the frequency sketch and the LRU order, holding the lock.
+     */
+    private void drain() {
+        reads.drain(key -> {
+            sketch.increment(key);
+            // touch the entry, in whichever area it is
+            if (window.get(key) == null) main.get(key);
+        });
+    }
+
+    /**
+     * Drop every entry with one of the tags, called by the writes after they committed.
+     */
+    public void invalidate(String... tags) {
+        lock.lock();
+        try {
+            invalidations++;
+            for (var tag : tags) {
+                var keys = byTag.get(tag);
+                if (keys == null) continue;
+                for (var key : List.copyOf(keys)) {
+                    var entry = entries.get(key);
+                    if (entry != null) {
+                        remove(entry);
+                        stats(key.name()).invalidated.increment();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            invalidations++;
+            List.copyOf(entries.values()).forEach(this::remove);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return windowBytes + mainBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Stats stats(String name) {
+        return stats.computeIfAbsent(name, n -> new Stats());
+    }
+
+    private void admit(Entry entry) {
+        if (entry.bytes() > mainMaxBytes) {
+            stats(entry.key().name()).rejected.increment();
+            return;
+        }
+        entries.put(entry.key(), entry);
+        window.put(entry.key(), entry);
+        windowBytes += entry.bytes();
+        added(entry);
+        var eldest = window.values().iterator();
+        while (windowBytes > windowMaxBytes && eldest.hasNext()) {
+            var candidate = eldest.next();
+            eldest.remove();
+            windowBytes -= candidate.bytes();
+            promote(candidate);
+        }
+    }
+
+    /**
+     * Move an entry from the window to the main area, if it is read more often than each of the
+     * entries it would evict. The victims are only chosen first, so a rejected entry evicts
+     * nothing.
+     */
+    private void promote(Entry candidate) {
+        var victims = new ArrayList<Entry>();
+        long freed = 0;
+        int victimFrequency = 0;
+        var eldest = main.values().iterator();
+        while (mainBytes - freed + candidate.bytes() > mainMaxBytes && eldest.hasNext()) {
+            var victim = eldest.next();
+            victims.add(victim);
+            freed += victim.bytes();
+            victimFrequency = Math.max(victimFrequency, sketch.frequency(victim.key()));
+        }
+        if (!victims.isEmpty() && sketch.frequency(candidate.key()) <= victimFrequency) {
+            entries.remove(candidate.key());
+            removed(candidate);
+            stats(candidate.key().name()).rejected.increment();
+            return;
+        }
+        for (var victim : victims) {
+            main.remove(victim.key());
+            entries.remove(victim.key());
+            mainBytes -= victim.bytes();
+            removed(victim);
+            stats(victim.key().name()).evicted.increment();
+        }
+        main.put(candidate.key(), candidate);
+        mainBytes += candidate.bytes();
+    }
+
+    private void remove(Entry entry) {
+        if (window.remove(entry.key()) != null) {
+            windowBytes -= entry.bytes();
+        } else if (main.remove(entry.key()) != null) {
+            mainBytes -= entry.bytes();
+        } else {
+            return;
+        }
+        entries.remove(entry.key());
+        removed(entry);
+    }
+
+    private void added(Entry entry) {
+        for (var tag : entry.tags()) {
+            byTag.computeIfAbsent(tag, t -> new HashSet<>()).add(entry.key());
+        }
+        var stats = stats(entry.key().name());
+        stats.bytes += entry.bytes();
+        stats.entries++;
+    }
+
+    private void removed(Entry entry) {
+        for (var tag : entry.tags()) {
+            var keys = byTag.get(tag);
+            if (keys == null) continue;
+            keys.remove(entry.key());
+            if (keys.isEmpty()) byTag.remove(tag);
+        }
+        var stats = stats(entry.key().name());
+        stats.bytes -= entry.bytes();
+        stats.entries--;
+    }
+
+    /**
+     * Rough heap size of a query result, as maps, lists and scalar values: an estimate to bound
+     * the memory of the cache, not an exact measurement.
+     */
+    static long estimateBytes(Object value) {
+        if (value == null) return 0;
+        if (value instanceof String string) return 40 + 2L * string.length();
+        if (value instanceof Number || value instanceof Boolean) return 16;
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 48;
+            for (var entry : map.entrySet()) {
+                bytes += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof Collection<?> collection) {
+            long bytes = 24 + 8L * collection.size();
+            for (var element : collection) {
+                bytes += estimateBytes(element);
+            }
+            return bytes;
+        }
+        // dates, times, points and parameter records
+        return 64;
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        var names = stats.keySet().stream().sorted().toList();
+        out.family("neoflix_query_cache_requests_total", "counter", "Cached query reads, from the cache or not.");
+        for (var name : names) {
+            var stats = this.stats.get(name);
+            out.sample("neoflix_query_cache_requests_total", stats.hits.sum(), "query", name, "result", "hit");
+            out.sample("neoflix_query_cache_requests_total", stats.misses.sum(), "query", name, "result", "miss");
+        }
+        out.family("neoflix_query_cache_hit_ratio", "gauge", "Share of the reads of a query answered from the cache.");
+        for (var name : names) {
+            var stats = this.stats.get(name);
+            long hits = stats.hits.sum();
+            long total = hits + stats.misses.sum();
+            out.sample("neoflix_query_cache_hit_ratio", total == 0 ? 0 : (double) hits / total, "query", name);
+        }
+        out.family("neoflix_query_cache_evictions_total", "counter",
+                "Entries dropped: evicted for a more frequent one, rejected by admission, expired or invalidated by a write.");
+        for (var name : names) {
+            var stats = this.stats.get(name);
+            out.sample("neoflix_query_cache_evictions_total", stats.evicted.sum(), "query", name, "reason", "size");
+            out.sample("neoflix_query_cache_evictions_total", stats.rejected.sum(), "query", name, "reason", "admission");
+            out.sample("neoflix_query_cache_evictions_total", stats.expired.sum(), "query", name, "reason", "expired");
+            out.sample("neoflix_query_cache_evictions_total", stats.invalidated.sum(), "query", name, "reason", "invalidated");
+        }
+        lock.lock();
+        try {
+            out.family("neoflix_query_cache_bytes", "gauge", "Estimated memory of the cached results of a query.");
+            for (var name : names) {
+                out.sample("neoflix_query_cache_bytes", this.stats.get(name).bytes, "query", name);
+            }
+            out.family("neoflix_query_cache_entries", "gauge", "Cached results of a query.");
+            for (var name : names) {
+                out.sample("neoflix_query_cache_entries", this.stats.get(name).entries, "query", name);
+            }
+        } finally {
+            lock.unlock();
+        }
+        out.single("neoflix_query_cache_max_bytes", "gauge", "QUERY_CACHE_MAX_BYTES.", maxBytes);
+    }
+
+    /**
+     * Bounded buffer of the keys of recent hits. Any thread can offer without locking, only the
+     * lock holder drains. When it is full further hits are not recorded.
+     */
+    static final class ReadBuffer {
+        private final AtomicReferenceArray<Object> keys;
+        private final int mask;
+        private final AtomicLong written = new AtomicLong();
+        private volatile long drained;
+
+        ReadBuffer(int size) {
+            this.keys = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        /**
+         * @return true when the buffer is at least half full and should be drained
+         */
+        boolean offer(Object key) {
+            long tail = written.get();
+            long pending = tail - drained;
+            if (pending >= keys.length()) return true;
+            if (written.compareAndSet(tail, tail + 1)) {
+                keys.lazySet((int) (tail & mask), key);
+            }
+            return pending + 1 >= keys.length() / 2;
+        }
+
+        /**
+         * Pass the buffered keys to the consumer, only called with the cache's lock held.
+         */
+        void drain(Consumer<Object> consumer) {
+            long head = drained;
+            long tail = written.get();
+            while (head < tail) {
+                int index = (int) (head & mask);
+                var key = keys.get(index);
+                // the writer claimed the slot but hasn't published its key yet
+                if (key == null) break;
+                keys.lazySet(index, null);
+                consumer.accept(key);
+                head++;
+            }
+            drained = head;
+        }
+    }
+
+    /**
+     * Approximate counts of recent reads per key, a count-min sketch of 4-bit counters. All
+     * counters are halved after every `10 * width` reads, so the counts follow what is popular
+     * now rather than what was popular once.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb7c2a1f1, 0x5bd1e995, 0x27d4eb2f};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int width) {
+            int size = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+            this.counters = new byte[SEEDS.length][size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * size;
+        }
+
+        void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(hash, i);
+                if (counters[i][index] < MAX_COUNT) {
+                    counters[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                halve();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, counters[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return h & mask;
+        }
+
+        private void halve() {
+            for (var row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
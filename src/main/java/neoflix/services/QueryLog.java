@@ -0,0 +1,251 @@
+package neoflix.services;
+
+import neoflix.metrics.LatencyHistogram;
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+import neoflix.metrics.RequestTiming;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.summary.ProfiledPlan;
+import org.neo4j.driver.summary.QueryType;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Timings of the service queries, by a stable name such as `MovieService.all`.
+ *
+ * Every query the services run goes through {@link #run(Transaction, String, String, Value)},
+ * which hands back a {@link Result} that reports once it has been read. From its
+ * {@link ResultSummary} the log records the server time to the first record and the time to
+ * consume the rest, next to the wall time seen by the app and the number of rows.
+ *
+ * Queries slower than `SLOW_QUERY_MILLIS` (default 500, `0` disables the log) are printed with
+ * their parameters, credentials and email addresses masked. With `SLOW_QUERY_PROFILE=true` (default) read-only slow queries are run
+ * again with PROFILE in the background, at most once a minute per name, and the plan is printed
+ * with its rows and db hits per operator.
+ */
+public final class QueryLog implements Metrics.Collector {
+
+    private static final QueryLog INSTANCE = new QueryLog(
+            Long.parseLong(System.getProperty("SLOW_QUERY_MILLIS", "500")),
+            Boolean.parseBoolean(System.getProperty("SLOW_QUERY_PROFILE", "true")));
+
+    public static QueryLog instance() {
+        return INSTANCE;
+    }
+
+    private static final long PROFILE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int MAX_PARAMETERS_LENGTH = 500;
+    // parameters with credentials or personal data, never written to the log
+    private static final Set<String> REDACTED = Set.of("email", "password", "encrypted");
+
+    /**
+     * Run a named query in the transaction.
+     *
+     * @param name stable name of the query, e.g. `GenreService.all`
+     */
+    public static Result run(Transaction tx, String name, String text, Value parameters) {
+        return INSTANCE.run(tx, name, name, text, parameters);
+    }
+
+    public static Result run(Transaction tx, String name, String text, Map<String, Object> parameters) {
+        return INSTANCE.run(tx, name, name, text, Values.value(parameters));
+    }
+
+    /**
+     * A query as sent to the server, see {@link #listen(Consumer)}.
+     *
+     * @param variant the name of the {@link QueryRegistry.Template}, or the name of the query
+     */
+    public record Query(String name, String variant, String text, Value parameters) {
+    }
+
+    /**
+     * Timings of all executions of one named query.
+     */
+    static final class Stats {
+        final LatencyHistogram wall = new LatencyHistogram();
+        final LongAdder firstRecordMillis = new LongAdder();
+        final LongAdder consumeMillis = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder slow = new LongAdder();
+        final AtomicLong profiledAt = new AtomicLong(System.nanoTime() - PROFILE_INTERVAL_NANOS);
+    }
+
+    /**
+     * One running query, finished by the {@link TimedResult}.
+     */
+    final class Execution {
+        private final String name;
+        private final String variant;
+        private final String text;
+        private final Value parameters;
+        private final long start = System.nanoTime();
+
+        Execution(String name, String variant, String text, Value parameters) {
+            this.name = name;
+            this.variant = variant;
+            this.text = text;
+            this.parameters = parameters;
+        }
+
+        void finished(ResultSummary summary, long rows) {
+            long wallNanos = System.nanoTime() - start;
+            RequestTiming.add("db", name, wallNanos);
+            var stats = stats(name);
+            stats.wall.record(wallNanos);
+            stats.firstRecordMillis.add(summary.resultAvailableAfter(TimeUnit.MILLISECONDS));
+            stats.consumeMillis.add(summary.resultConsumedAfter(TimeUnit.MILLISECONDS));
+            stats.rows.add(rows);
+            if (slowMillis > 0 && wallNanos >= TimeUnit.MILLISECONDS.toNanos(slowMillis)) {
+                stats.slow.increment();
+                slow(this, stats, summary, rows, wallNanos);
+            }
+        }
+    }
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final long slowMillis;
+    private final boolean profile;
+    private volatile Driver driver;
+    private volatile Consumer<Query> listener;
+    private final ExecutorService profiler = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(16), r -> {
+                var thread = new Thread(r, "slow-query-profiler");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    QueryLog(long slowMillis, boolean profile) {
+        this.slowMillis = slowMillis;
+        this.profile = profile;
+    }
+
+    /**
+     * @param driver used to PROFILE slow queries, they are only logged until this is set
+     */
+    public void profileWith(Driver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Pass every query the services run to the listener before it is sent, e.g. to collect the
+     * queries for a benchmark. `null` removes the listener.
+     */
+    public void listen(Consumer<Query> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param variant the name of a {@link QueryRegistry.Template}, for the slow-query log
+     */
+    Result run(Transaction tx, String name, String variant, String text, Value parameters) {
+        var listener = this.listener;
+        if (listener != null) listener.accept(new Query(name, variant, text, parameters));
+        var execution = new Execution(name, variant, text, parameters);
+        return new TimedResult(tx.run(text, parameters), execution);
+    }
+
+    /**
+     * @return the parameters for the log, with the values of {@link #REDACTED} parameters masked
+     */
+    static String redacted(Value parameters) {
+        if (parameters == null || parameters.isNull()) return "{}";
+        var masked = new LinkedHashMap<String, Object>();
+        for (var key : parameters.keys()) {
+            masked.put(key, REDACTED.contains(key) ? "***" : parameters.get(key));
+        }
+        return masked.toString();
+    }
+
+    Stats stats(String name) {
+        return stats.computeIfAbsent(name, n -> new Stats());
+    }
+
+    private void slow(Execution execution, Stats stats, ResultSummary summary, long rows, long wallNanos) {
+        String parameters = redacted(execution.parameters);
+        if (parameters.length() > MAX_PARAMETERS_LENGTH) {
+            parameters = parameters.substring(0, MAX_PARAMETERS_LENGTH) + "...";
+        }
+        System.err.printf("Slow query %s: %d ms (first record after %d ms, consumed after %d ms, %d rows) %s%n",
+                execution.variant, TimeUnit.NANOSECONDS.toMillis(wallNanos),
+                summary.resultAvailableAfter(TimeUnit.MILLISECONDS), summary.resultConsumedAfter(TimeUnit.MILLISECONDS),
+                rows, parameters);
+
+        var driver = this.driver;
+        // only read queries can safely run a second time
+        if (!profile || driver == null || summary.queryType() != QueryType.READ_ONLY) return;
+        long last = stats.profiledAt.get();
+        long now = System.nanoTime();
+        if (now - last < PROFILE_INTERVAL_NANOS || !stats.profiledAt.compareAndSet(last, now)) return;
+        profiler.execute(() -> {
+            try (var session = driver.session()) {
+                var profiled = session.readTransaction(tx ->
+                        tx.run("PROFILE " + execution.text, execution.parameters).consume());
+                if (profiled.hasProfile()) {
+                    var plan = new StringBuilder();
+                    describe(profiled.profile(), 1, plan);
+                    System.err.printf("Profile of %s:%n%s", execution.variant, plan);
+                }
+            } catch (RuntimeException e) {
+                System.err.printf("Could not profile %s: %s%n", execution.variant, e.getMessage());
+            }
+        });
+    }
+
+    static void describe(ProfiledPlan plan, int depth, StringBuilder out) {
+        out.append("  ".repeat(depth))
+                .append(plan.operatorType())
+                .append(" rows=").append(plan.records())
+                .append(" dbHits=").append(plan.dbHits())
+                .append('\n');
+        for (var child : plan.children()) {
+            describe(child, depth + 1, out);
+        }
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        var names = stats.keySet().stream().sorted().toList();
+        out.family("neoflix_query_duration_seconds", "summary", "Wall time of a named query, as seen by the app.");
+        for (var name : names) {
+            var histogram = stats.get(name).wall;
+            for (double quantile : new double[]{0.5, 0.99, 0.999}) {
+                out.sample("neoflix_query_duration_seconds", histogram.percentile(quantile) / 1e9,
+                        "query", name, "quantile", String.valueOf(quantile));
+            }
+            out.sample("neoflix_query_duration_seconds_sum", histogram.sumNanos() / 1e9, "query", name);
+            out.sample("neoflix_query_duration_seconds_count", histogram.count(), "query", name);
+        }
+        out.family("neoflix_query_first_record_seconds_total", "counter", "Server time until the first record was available.");
+        for (var name : names) {
+            out.sample("neoflix_query_first_record_seconds_total", stats.get(name).firstRecordMillis.sum() / 1e3, "query", name);
+        }
+        out.family("neoflix_query_consume_seconds_total", "counter", "Server time to consume the rest of the result.");
+        for (var name : names) {
+            out.sample("neoflix_query_consume_seconds_total", stats.get(name).consumeMillis.sum() / 1e3, "query", name);
+        }
+        out.family("neoflix_query_rows_total", "counter", "Rows returned by a named query.");
+        for (var name : names) {
+            out.sample("neoflix_query_rows_total", stats.get(name).rows.sum(), "query", name);
+        }
+        out.family("neoflix_query_slow_total", "counter", "Executions slower than SLOW_QUERY_MILLIS.");
+        for (var name : names) {
+            out.sample("neoflix_query_slow_total", stats.get(name).slow.sum(), "query", name);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package neoflix.services;
+
+import neoflix.Params;
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Values;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the Cypher text of the paginated list queries.
+ *
+ * The sort property and direction of a list can't be passed as query parameters, so every
+ * combination of {@link Params.Sort}, {@link Params.Order} and paging mode (skip or cursor) needs
+ * its own query text. Instead of formatting a new string on every request, each combination is
+ * built once as an immutable {@link Template} with a stable name, which keeps the set of query
+ * texts sent to the server small and fixed so that their plans stay cached.
+ *
+ * Every template counts its executions, exported on `/metrics` to show which variants are in use,
+ * and {@link #warmUp(Driver)} can have the server plan all of them with EXPLAIN before the first
+ * request.
+ */
+public final class QueryRegistry implements Metrics.Collector {
+
+    private static final QueryRegistry INSTANCE = new QueryRegistry();
+
+    public static QueryRegistry instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * A named, pre-built query text.
+     */
+    public static final class Template {
+        private final String name;
+        private final String query;
+        private final String text;
+        private final LongAdder executions = new LongAdder();
+
+        Template(String name, String query, String text) {
+            this.name = name;
+            this.query = query;
+            this.text = text;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String text() {
+            return text;
+        }
+
+        public long executions() {
+            return executions.sum();
+        }
+
+        public Result run(Transaction tx, Map<String, Object> parameters) {
+            executions.increment();
+            return QueryLog.instance().run(tx, query, name, text, Values.value(parameters));
+        }
+    }
+
+    /**
+     * All variants of one list query, looked up by the sort, order and paging mode of a request.
+     */
+    public static final class Family {
+        private final Params.Sort defaultSort;
+        // [sort][order][paging: 0 = skip, 1 = cursor]
+        private final Map<Params.Sort, Template[][]> variants = new EnumMap<>(Params.Sort.class);
+
+        Family(Params.Sort defaultSort) {
+            this.defaultSort = defaultSort;
+        }
+
+        /**
+         * @return the template for the sort, order and paging mode of the params; sorts the
+         * query doesn't support use the default sort
+         */
+        public Template template(Params params) {
+            var byOrder = variants.get(sortOf(params));
+            return byOrder[params.order().ordinal()][params.after() == null ? 0 : 1];
+        }
+
+        /**
+         * @return the sort the template for these params orders by
+         */
+        public Params.Sort sortOf(Params params) {
+            var sort = params.sort(defaultSort);
+            return variants.containsKey(sort) ? sort : defaultSort;
+        }
+    }
+
+    private final Map<String, Template> templates = new LinkedHashMap<>();
+
+    private QueryRegistry() {
+    }
+
+    /**
+     * Register a paginated list query.
+     *
+     * The pattern is a format string whose arguments are, in order, the sort key expression,
+     * the cursor predicate (empty or starting with `AND`), the ORDER BY clause and the SKIP
+     * clause (empty in cursor mode).
+     *
+     * @param name        stable name, e.g. `MovieService.all`
+     * @param keys        Cypher expression of the sort key for every supported sort
+     * @param defaultSort sort used when the request asks for an unsupported one
+     * @param id          Cypher expression of the unique id used as tie breaker
+     * @param pattern     the query text
+     * @return Family the variants of the query
+     */
+    public synchronized Family register(String name, Map<Params.Sort, String> keys, Params.Sort defaultSort,
+                                        String id, String pattern) {
+        var family = new Family(defaultSort);
+        keys.forEach((sort, key) -> {
+            var byOrder = new Template[Params.Order.values().length][2];
+            for (var order : Params.Order.values()) {
+                for (int paging = 0; paging < 2; paging++) {
+                    boolean cursor = paging == 1;
+                    String text = String.format(pattern, key,
+                            Paging.after(key, id, order, cursor), Paging.orderBy(key, id, order), Paging.skip(cursor));
+                    String variant = String.format("%s[%s %s%s]", name, sort, order, cursor ? " after" : "");
+                    var template = new Template(variant, name, text);
+                    templates.put(variant, template);
+                    byOrder[order.ordinal()][paging] = template;
+                }
+            }
+            family.variants.put(sort, byOrder);
+        });
+        return family;
+    }
+
+    /**
+     * Register a movie list query, each of {@link Params#MOVIE_SORT} orders by the movie
+     * property of that name.
+     */
+    public Family registerMovieList(String name, String pattern) {
+        var keys = new EnumMap<Params.Sort, String>(Params.Sort.class);
+        for (var sort : Params.MOVIE_SORT) {
+            keys.put(sort, "m.`" + sort + "`");
+        }
+        return register(name, keys, Params.Sort.title, "m.tmdbId", pattern);
+    }
+
+    public synchronized Collection<Template> templates() {
+        return List.copyOf(templates.values());
+    }
+
+    /**
+     * Have the server plan every template with EXPLAIN, so the plans are cached before the
+     * first real request. Failures are logged and don't stop the warm-up.
+     *
+     * @return the number of templates that were planned
+     */
+    public int warmUp(Driver driver) {
+        int planned = 0;
+        var failed = new ArrayList<String>();
+        try (var session = driver.session()) {
+            for (var template : templates()) {
+                try {
+                    // the plan cache ignores the EXPLAIN prefix, so this caches the plan of the query itself
+                    session.readTransaction(tx -> tx.run("EXPLAIN " + template.text()).consume());
+                    planned++;
+                } catch (RuntimeException e) {
+                    failed.add(template.name() + ": " + e.getMessage());
+                }
+            }
+        }
+        System.out.printf("Planned %d query templates%n", planned);
+        failed.forEach(message -> System.err.println("Could not plan " + message));
+        return planned;
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        out.family("neoflix_query_template_executions_total", "counter", "Executions of a list query template.");
+        for (var template : templates()) {
+            out.sample("neoflix_query_template_executions_total", template.executions(), "template", template.name());
+        }
+    }
+}
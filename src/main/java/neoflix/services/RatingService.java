@@ -1,23 +1,39 @@
 package neoflix.services;
 
-import neoflix.AppUtils;
 import neoflix.Params;
 import neoflix.ValidationException;
 import org.neo4j.driver.Driver;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
 import org.neo4j.driver.Values;
 import org.neo4j.driver.exceptions.NoSuchRecordException;
 
-public class RatingService {
+public class RatingService implements Ratings {
+
+    private static final QueryRegistry.Family FOR_MOVIE = QueryRegistry.instance().register("RatingService.forMovie",
+            Map.of(Params.Sort.timestamp, "r.timestamp"), Params.Sort.timestamp, "u.userId", """
+            MATCH (u:User)-[r:RATED]->(m:Movie {tmdbId: $id})
+            WHERE r.timestamp IS NOT NULL %2$s
+            RETURN r {
+                .rating,
+                .timestamp,
+                user: u {
+                    .userId, .name
+                }
+            } AS review
+            %3$s
+            %4$s
+            LIMIT $limit
+            """);
 
     private final Driver driver;
-    private final List<Map<String, Object>> ratings;
-    private final Map<String, Object> pulpfiction;
 
     /**
      * The constructor expects an instance of the Neo4j Driver, which will be used to interact with
@@ -25,8 +41,6 @@ public class RatingService {
      */
     public RatingService(Driver driver) {
         this.driver = driver;
-        this.ratings = AppUtils.loadFixtureList("ratings");
-        this.pulpfiction = AppUtils.loadFixtureSingle("pulpfiction");
     }
 
     /**
@@ -49,32 +63,34 @@ public class RatingService {
 
         try (var session = driver.session()) {
 
-            var movies = session.readTransaction(tx->{
-
-                var query = """
-                    MATCH (u:User)-[r:RATED]->(m:Movie {tmdbId: $id})
-                    RETURN r {
-                        .rating,
-                        .timestamp,
-                        user: u {
-                            .userId, .name
-                        }
-                    } AS review
-                    ORDER BY r.timestamp DESC
-                    SKIP $skip
-                    LIMIT $limit
-                    """;
-                var result = tx.run(query,
-                    Values.parameters("id", id, "skip", params.skip(), "limit", params.limit()))
+            var movies = QueryCache.instance().read("RatingService.forMovie", Arrays.asList(id, params), List.of(QueryCache.movie(id)),
+                    () -> session.readTransaction(tx->{
+                var result = forMovieQuery(tx, id, params)
                     .list(row -> row.get("review").asMap());
                 return result;
-            });
+            }));
             return movies;
         }
 
     }
     // end::forMovie[]
 
+    /**
+     * Streaming variant of {@link #forMovie(String, Params)}, every review is passed to the sink
+     * as soon as it is read.
+     */
+    public void forMovie(String id, Params params, Consumer<Value> sink) {
+        Streaming.read(driver, tx -> forMovieQuery(tx, id, params), "review", sink);
+    }
+
+    private Result forMovieQuery(Transaction tx, String id, Params params) {
+        // reviews are always listed newest first
+        var newestFirst = new Params(params.query(), params.sort(), Params.Order.DESC,
+                params.limit(), params.skip(), params.after());
+        return FOR_MOVIE.template(newestFirst)
+            .run(tx, Paging.parameters(newestFirst, "timestamp", "id", id));
+    }
+
 
     /**
      * Add a relationship between a User and Movie with a `rating` property. The `rating` parameter
@@ -102,10 +118,11 @@ public class RatingService {
             SET r.rating = $rating, r.timestamp = timestamp()
             RETURN m {.*,rating:r.rating} as movie
             """;
-                var result = tx.run(query,
+                var result = QueryLog.run(tx, "RatingService.add", query,
                     Values.parameters("userId", userId, "movieId", movieId, "rating", rating));
                 return result.single().get("movie").asMap();
             });
+            QueryCache.instance().invalidate(QueryCache.movie(movieId), QueryCache.user(userId));
 
             return movie;
 
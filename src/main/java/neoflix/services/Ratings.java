@@ -0,0 +1,29 @@
+package neoflix.services;
+
+import neoflix.Params;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Movie reviews, see {@link RatingService} for the Neo4j implementation.
+ */
+public interface Ratings {
+
+    /**
+     * @return reviews of the movie, newest first
+     */
+    List<Map<String, Object>> forMovie(String id, Params params);
+
+    default void forMovie(String id, Params params, Consumer<Value> sink) {
+        forMovie(id, params).forEach(review -> sink.accept(Values.value(review)));
+    }
+
+    /**
+     * @return the movie with the user's `rating`
+     */
+    Map<String, Object> add(String userId, String movieId, int rating);
+}
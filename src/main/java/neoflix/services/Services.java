@@ -0,0 +1,56 @@
+package neoflix.services;
+
+import neoflix.services.fixture.AuthServiceFixture;
+import neoflix.services.fixture.FavoriteServiceFixture;
+import neoflix.services.fixture.FixtureData;
+import neoflix.services.fixture.GenreServiceFixture;
+import neoflix.services.fixture.MovieServiceFixture;
+import neoflix.services.fixture.PeopleServiceFixture;
+import neoflix.services.fixture.RatingServiceFixture;
+import org.neo4j.driver.Driver;
+
+/**
+ * The services the routes are built with, either backed by Neo4j or by the in-memory fixtures.
+ *
+ * The backend is chosen with `SERVICE_BACKEND`: `neo4j` (the default) or `fixtures`, which needs
+ * no database and is meant for load testing the HTTP, auth and serialization layers.
+ *
+ * The app creates one instance at startup and every route shares it, the {@link GenreCatalog}
+ * serves the genres from a snapshot of {@link #genres()} and is started by the app. Only the fixture backend
+ * reads the JSON fixtures, the Neo4j services hold nothing but the driver, so a Neo4j backed app
+ * never parses them.
+ */
+public record Services(Movies movies, Genres genres, People people, Ratings ratings,
+                       Favorites favorites, Accounts accounts, GenreCatalog genreCatalog) {
+
+    public Services(Movies movies, Genres genres, People people, Ratings ratings,
+                    Favorites favorites, Accounts accounts) {
+        this(movies, genres, people, ratings, favorites, accounts, new GenreCatalog(genres));
+    }
+
+    public static boolean useFixtures() {
+        return "fixtures".equalsIgnoreCase(System.getProperty("SERVICE_BACKEND", "neo4j"));
+    }
+
+    public static Services neo4j(Driver driver, String jwtSecret) {
+        return new Services(new MovieService(driver), new GenreService(driver), new PeopleService(driver),
+                new RatingService(driver), new FavoriteService(driver), new AuthService(driver, jwtSecret));
+    }
+
+    /**
+     * @return these services with concurrent identical movie reads coalesced and the anonymous
+     * catalog pages cached, see {@link CoalescingMovies}
+     */
+    public Services coalescing(SingleFlight flights, PageCache pages) {
+        if (!flights.enabled() && !pages.enabled()) return this;
+        return new Services(new CoalescingMovies(movies, favorites, flights, pages), genres, people, ratings,
+                favorites, accounts, genreCatalog);
+    }
+
+    public static Services fixtures(String jwtSecret) {
+        var data = FixtureData.load();
+        return new Services(new MovieServiceFixture(data), new GenreServiceFixture(data),
+                new PeopleServiceFixture(data), new RatingServiceFixture(data), new FavoriteServiceFixture(data),
+                new AuthServiceFixture(data, jwtSecret));
+    }
+}
@@ -0,0 +1,134 @@
+package neoflix.services;
+
+import neoflix.metrics.Metrics;
+import neoflix.metrics.PrometheusText;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical reads: while a read for a key is running, other callers with
+ * the same key wait for it and get the same result instead of running the query again.
+ *
+ * Nothing is cached. The flight is removed before its result is handed out, so a call that
+ * arrives afterwards starts a new read and sees writes that finished in the meantime. A failure
+ * is rethrown to every waiter of the flight.
+ *
+ * Metrics are kept per operation, e.g. `MovieService.findById`, not per key: keys carry the
+ * request parameters and search text, and would make an unbounded label set.
+ */
+public final class SingleFlight implements Metrics.Collector {
+
+    private record Key(String operation, List<Object> arguments) {
+    }
+
+    private static final class Flight {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+    }
+
+    private static final class Stats {
+        final LongAdder executions = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+    }
+
+    private final boolean enabled;
+    private final Map<Key, Flight> flights = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public SingleFlight() {
+        this(Boolean.parseBoolean(System.getProperty("SINGLE_FLIGHT", "true")));
+    }
+
+    /**
+     * @param enabled false runs every read, `SINGLE_FLIGHT=false`
+     */
+    SingleFlight(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Run the read, or wait for the one already running with the same operation and arguments.
+     *
+     * @param operation stable name of the read, e.g. `MovieService.findById`
+     * @param arguments everything the result depends on, compared with equals
+     * @return the result of the read, shared with every caller that waited on it
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T run(String operation, List<Object> arguments, Supplier<T> read) {
+        if (!enabled) return read.get();
+        var key = new Key(operation, arguments);
+        var stats = this.stats.computeIfAbsent(operation, k -> new Stats());
+        var flight = new Flight();
+        var running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            stats.coalesced.increment();
+            try {
+                return (T) running.result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error error) throw error;
+                throw e;
+            }
+        }
+        stats.executions.increment();
+        try {
+            T result = read.get();
+            flights.remove(key, flight);
+            flight.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @return reads currently running
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    /**
+     * @return callers of the operation that got the result of another caller's read
+     */
+    public long coalesced(String operation) {
+        var stats = this.stats.get(operation);
+        return stats == null ? 0 : stats.coalesced.sum();
+    }
+
+    /**
+     * @return reads of the operation that were actually run
+     */
+    public long executions(String operation) {
+        var stats = this.stats.get(operation);
+        return stats == null ? 0 : stats.executions.sum();
+    }
+
+    @Override
+    public void collect(PrometheusText out) {
+        var operations = stats.keySet().stream().sorted().toList();
+        out.family("neoflix_single_flight_executions_total", "counter", "Coalescable reads that were run.");
+        for (var operation : operations) {
+            out.sample("neoflix_single_flight_executions_total", stats.get(operation).executions.sum(),
+                    "operation", operation);
+        }
+        out.family("neoflix_single_flight_coalesced_total", "counter",
+                "Callers that waited for a read already running with the same key.");
+        for (var operation : operations) {
+            out.sample("neoflix_single_flight_coalesced_total", stats.get(operation).coalesced.sum(),
+                    "operation", operation);
+        }
+        out.single("neoflix_single_flight_in_flight", "gauge", "Coalescable reads running right now.", inFlight());
+    }
+}
@@ -0,0 +1,40 @@
+package neoflix.services;
+
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a read query and hands every row to a sink as it arrives from the server.
+ *
+ * Unlike `session.readTransaction`, the transaction is not retried on transient errors:
+ * rows that already reached the sink may have been written to a client and can't be taken
+ * back, so the error is passed on instead.
+ */
+final class Streaming {
+
+    private Streaming() {
+    }
+
+    /**
+     * @param query  runs the query in the given transaction
+     * @param column the column holding the row to pass on
+     * @param sink   receives the value of the column for every record
+     */
+    static void read(Driver driver, Function<Transaction, Result> query, String column, Consumer<Value> sink) {
+        var config = SessionConfig.builder().withDefaultAccessMode(AccessMode.READ).build();
+        try (var session = driver.session(config); var tx = session.beginTransaction()) {
+            var result = query.apply(tx);
+            while (result.hasNext()) {
+                sink.accept(result.next().get(column));
+            }
+            tx.commit();
+        }
+    }
+}
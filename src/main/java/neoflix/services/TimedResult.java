@@ -0,0 +1,96 @@
+package neoflix.services;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Result} that counts the records it hands out and reports to the {@link QueryLog}
+ * once the last one has been read, or when it is consumed early.
+ */
+final class TimedResult implements Result {
+
+    private final Result result;
+    private final QueryLog.Execution execution;
+    private long rows;
+    private boolean finished;
+
+    TimedResult(Result result, QueryLog.Execution execution) {
+        this.result = result;
+        this.execution = execution;
+    }
+
+    @Override
+    public List<String> keys() {
+        return result.keys();
+    }
+
+    @Override
+    public boolean hasNext() {
+        boolean hasNext = result.hasNext();
+        if (!hasNext) finish();
+        return hasNext;
+    }
+
+    @Override
+    public Record next() {
+        var record = result.next();
+        rows++;
+        return record;
+    }
+
+    @Override
+    public Record single() throws NoSuchRecordException {
+        var record = result.single();
+        rows++;
+        finish();
+        return record;
+    }
+
+    @Override
+    public Record peek() {
+        return result.peek();
+    }
+
+    @Override
+    public Stream<Record> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false);
+    }
+
+    @Override
+    public List<Record> list() {
+        return list(Function.identity());
+    }
+
+    @Override
+    public <T> List<T> list(Function<Record, T> mapFunction) {
+        var list = new ArrayList<T>();
+        while (hasNext()) {
+            list.add(mapFunction.apply(next()));
+        }
+        return list;
+    }
+
+    @Override
+    public ResultSummary consume() {
+        return finish();
+    }
+
+    private ResultSummary finish() {
+        var summary = result.consume();
+        if (!finished) {
+            finished = true;
+            execution.finished(summary, rows);
+        }
+        return summary;
+    }
+}
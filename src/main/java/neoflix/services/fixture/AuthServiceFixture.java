@@ -0,0 +1,62 @@
+package neoflix.services.fixture;
+
+import neoflix.AuthUtils;
+import neoflix.ValidationException;
+import neoflix.services.Accounts;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Accounts} with the `users` fixture as the initial users. Passwords are hashed and
+ * checked with bcrypt and tokens are signed like with the database, so logins cost the same.
+ */
+public class AuthServiceFixture implements Accounts {
+
+    private final FixtureData data;
+    private final String jwtSecret;
+
+    public AuthServiceFixture(FixtureData data, String jwtSecret) {
+        this.data = data;
+        this.jwtSecret = jwtSecret;
+    }
+
+    @Override
+    public Map<String, Object> register(String email, String plainPassword, String name) {
+        var user = new ConcurrentHashMap<String, Object>();
+        user.put("userId", UUID.randomUUID().toString());
+        user.put("email", email);
+        user.put("password", AuthUtils.encryptPassword(plainPassword));
+        user.put("name", name);
+        if (data.usersByEmail.putIfAbsent(email, user) != null) {
+            throw new ValidationException("An account already exists with email address" + email,
+                    Map.of("email", "Email address already taken"));
+        }
+        data.usersById.put((String) user.get("userId"), user);
+        return withToken(user);
+    }
+
+    @Override
+    public Map<String, Object> authenticate(String email, String plainPassword) {
+        var user = data.usersByEmail.get(email);
+        if (user == null) {
+            throw new ValidationException("Incorrect email", Map.of("email", "Incorrect email"));
+        }
+        var hashed = (String) user.get("password");
+        if (!AuthUtils.verifyPassword(plainPassword, hashed)) {
+            throw new ValidationException("Incorrect password", Map.of("password", "Incorrect password"));
+        }
+        if (AuthUtils.needsRehash(hashed)) {
+            user.put("password", AuthUtils.encryptPassword(plainPassword));
+        }
+        return withToken(user);
+    }
+
+    private Map<String, Object> withToken(Map<String, Object> user) {
+        var claims = Map.of("sub", user.get("userId"), "userId", user.get("userId"), "name", user.get("name"));
+        String token = AuthUtils.sign((String) user.get("userId"), claims, jwtSecret);
+        return Map.of("token", token, "userId", user.get("userId"), "email", user.get("email"),
+                "name", user.get("name"));
+    }
+}
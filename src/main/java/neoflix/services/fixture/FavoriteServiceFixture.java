@@ -0,0 +1,51 @@
+package neoflix.services.fixture;
+
+import neoflix.Params;
+import neoflix.ValidationException;
+import neoflix.services.Favorites;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Favorites} kept in memory per user.
+ */
+public class FavoriteServiceFixture implements Favorites {
+
+    private final FixtureData data;
+
+    public FavoriteServiceFixture(FixtureData data) {
+        this.data = data;
+    }
+
+    @Override
+    public List<Map<String, Object>> all(String userId, Params params) {
+        var sort = params.sort(Params.Sort.title);
+        if (!Params.MOVIE_SORT.contains(sort)) sort = Params.Sort.title;
+        return FixturePaging.page(data.movieRows(data.favoritesOf(userId), userId), params, sort.name(), "tmdbId");
+    }
+
+    @Override
+    public Set<String> ids(String userId) {
+        return Set.copyOf(data.favorites.getOrDefault(userId, Set.of()));
+    }
+
+    @Override
+    public Map<String, Object> add(String userId, String movieId) {
+        if (!data.usersById.containsKey(userId) || !data.movies.containsKey(movieId)) {
+            throw new ValidationException("Couldn't create a favorite relationship for user",
+                    Map.of("movieId", movieId, "userId", userId));
+        }
+        data.favoritesOf(userId).add(movieId);
+        return data.movieRow(movieId, userId);
+    }
+
+    @Override
+    public Map<String, Object> remove(String userId, String movieId) {
+        if (!data.favoritesOf(userId).remove(movieId)) {
+            throw new ValidationException("Could not find the relationship", Map.of("movieId", movieId, "userId", userId));
+        }
+        return data.movieRow(movieId, userId);
+    }
+}
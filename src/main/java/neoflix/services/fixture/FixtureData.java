@@ -0,0 +1,221 @@
+package neoflix.services.fixture;
+
+import neoflix.AppUtils;
+import neoflix.AuthUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The JSON fixtures in `/fixtures`, loaded once and indexed the way the Neo4j queries look
+ * them up: movies by tmdbId, genre, actor and director, people by tmdbId, users by email.
+ *
+ * Movies and people are read-only after loading. Users, reviews and favorites change while the
+ * app is running and live in concurrent collections, they are lost on restart.
+ */
+public final class FixtureData {
+
+    // fixtures that list the movies of one genre or person, without saying which one
+    private static final String COMEDY = "Comedy";
+    private static final String TOM_HANKS = "31";
+    private static final String COPPOLA = "1776";
+    private static final String PULP_FICTION = "680";
+
+    // movie properties that are relationships in the graph, not part of `m {.*}`
+    private static final Set<String> RELATIONSHIPS =
+            Set.of("actors", "directors", "genres", "ratings", "ratingCount", "favorite", "score");
+
+    final Map<String, Map<String, Object>> movies = new LinkedHashMap<>();
+    final Map<String, Set<String>> moviesByGenre = new HashMap<>();
+    final Map<String, Set<String>> moviesByActor = new HashMap<>();
+    final Map<String, Set<String>> moviesByDirector = new HashMap<>();
+    // genres, actors and directors of every movie, as `genre:name` or `person:tmdbId`
+    final Map<String, Set<String>> related = new HashMap<>();
+    // movies a person acted in or directed
+    final Map<String, Set<String>> moviesByPerson = new HashMap<>();
+    final Map<String, Map<String, Object>> people = new LinkedHashMap<>();
+    final List<Map<String, Object>> genres;
+
+    final Map<String, List<Map<String, Object>>> reviews = new ConcurrentHashMap<>();
+    final Map<String, Map<String, Object>> usersByEmail = new ConcurrentHashMap<>();
+    final Map<String, Map<String, Object>> usersById = new ConcurrentHashMap<>();
+    final Map<String, Set<String>> favorites = new ConcurrentHashMap<>();
+
+    public static FixtureData load() {
+        return new FixtureData();
+    }
+
+    private FixtureData() {
+        for (var name : List.of("popular", "latest", "similar")) {
+            AppUtils.loadFixtureList(name).forEach(this::addMovie);
+        }
+        // every fixture file is parsed once, the lists of one genre or person are indexed as they are merged
+        for (var movie : AppUtils.loadFixtureList("directed_by_coppola")) {
+            addMovie(movie);
+            index(moviesByDirector, COPPOLA, movie);
+        }
+        for (var movie : AppUtils.loadFixtureList("acted_in_tom_hanks")) {
+            addMovie(movie);
+            index(moviesByActor, TOM_HANKS, movie);
+        }
+        for (var movie : AppUtils.loadFixtureList("comedy_movies")) {
+            addMovie(movie);
+            index(moviesByGenre, COMEDY, movie);
+        }
+        for (var name : List.of("pulpfiction", "goodfellas", "shawshank")) {
+            addMovie(AppUtils.loadFixtureSingle(name));
+        }
+        people.putIfAbsent(TOM_HANKS, new HashMap<>(Map.of("tmdbId", TOM_HANKS, "name", "Tom Hanks")));
+        people.putIfAbsent(COPPOLA, new HashMap<>(Map.of("tmdbId", COPPOLA, "name", "Francis Ford Coppola")));
+        for (var id : movies.keySet()) {
+            var kinds = new HashSet<String>();
+            moviesByGenre.forEach((genre, ids) -> {
+                if (ids.contains(id)) kinds.add("genre:" + genre);
+            });
+            moviesByActor.forEach((actor, ids) -> {
+                if (ids.contains(id)) kinds.add("person:" + actor);
+            });
+            moviesByDirector.forEach((director, ids) -> {
+                if (ids.contains(id)) kinds.add("person:" + director);
+            });
+            related.put(id, kinds);
+        }
+        moviesByActor.forEach((person, ids) -> moviesByPerson.computeIfAbsent(person, k -> new HashSet<>()).addAll(ids));
+        moviesByDirector.forEach((person, ids) -> moviesByPerson.computeIfAbsent(person, k -> new HashSet<>()).addAll(ids));
+        addPerson(AppUtils.loadFixtureSingle("pacino"));
+        AppUtils.loadFixtureList("people").forEach(this::addPerson);
+
+        genres = AppUtils.loadFixtureList("genres").stream()
+                .filter(genre -> !"(no genres listed)".equals(genre.get("name")))
+                .toList();
+
+        var reviewsOfPulpFiction = new CopyOnWriteArrayList<Map<String, Object>>();
+        for (var rating : AppUtils.loadFixtureList("ratings")) {
+            @SuppressWarnings("unchecked")
+            var user = (Map<String, Object>) rating.get("user");
+            reviewsOfPulpFiction.add(review(rating.get("rating"), rating.get("timestamp"),
+                    String.valueOf(user.get("id")), (String) user.get("name")));
+        }
+        reviews.put(PULP_FICTION, reviewsOfPulpFiction);
+
+        for (var user : AppUtils.loadFixtureList("users")) {
+            // the fixture holds the plain password, store it the way register() does
+            var stored = new ConcurrentHashMap<>(user);
+            stored.put("password", AuthUtils.encryptPassword((String) user.get("password")));
+            usersByEmail.put((String) stored.get("email"), stored);
+            usersById.put((String) stored.get("userId"), stored);
+        }
+    }
+
+    /**
+     * Merge a movie into the index, the first fixture that has a property wins.
+     */
+    @SuppressWarnings("unchecked")
+    private void addMovie(Map<String, Object> movie) {
+        var id = (String) movie.get("tmdbId");
+        if (id == null) return;
+        var merged = movies.computeIfAbsent(id, k -> new LinkedHashMap<>());
+        movie.forEach(merged::putIfAbsent);
+        for (var genre : (List<Map<String, Object>>) movie.getOrDefault("genres", List.of())) {
+            index(moviesByGenre, (String) genre.get("name"), movie);
+        }
+        for (var actor : (List<Map<String, Object>>) movie.getOrDefault("actors", List.of())) {
+            index(moviesByActor, (String) actor.get("tmdbId"), movie);
+            addPerson(actor);
+        }
+        for (var director : (List<Map<String, Object>>) movie.getOrDefault("directors", List.of())) {
+            index(moviesByDirector, (String) director.get("tmdbId"), movie);
+            addPerson(director);
+        }
+    }
+
+    private void addPerson(Map<String, Object> person) {
+        var id = (String) person.get("tmdbId");
+        if (id == null) return;
+        var merged = people.computeIfAbsent(id, k -> new LinkedHashMap<>());
+        person.forEach((key, value) -> {
+            // the role belongs to the ACTED_IN relationship, not to the person
+            if (!key.equals("role")) merged.putIfAbsent(key, value);
+        });
+    }
+
+    private static void index(Map<String, Set<String>> index, String key, Map<String, Object> movie) {
+        if (key == null || movie.get("tmdbId") == null) return;
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add((String) movie.get("tmdbId"));
+    }
+
+    static Map<String, Object> review(Object rating, Object timestamp, String userId, String name) {
+        var user = new LinkedHashMap<String, Object>();
+        user.put("userId", userId);
+        user.put("name", name);
+        var review = new LinkedHashMap<String, Object>();
+        review.put("rating", rating);
+        review.put("timestamp", timestamp);
+        review.put("user", user);
+        return review;
+    }
+
+    /**
+     * @return the properties of the movie node with the `favorite` flag, like `m {.*, favorite: ...}`
+     */
+    Map<String, Object> movieRow(String id, String userId) {
+        var movie = movies.get(id);
+        var row = new LinkedHashMap<String, Object>();
+        movie.forEach((key, value) -> {
+            if (!RELATIONSHIPS.contains(key)) row.put(key, value);
+        });
+        row.put("favorite", isFavorite(userId, id));
+        return row;
+    }
+
+    List<Map<String, Object>> movieRows(Collection<String> ids, String userId) {
+        var rows = new ArrayList<Map<String, Object>>(ids.size());
+        for (var id : ids) {
+            if (movies.containsKey(id)) rows.add(movieRow(id, userId));
+        }
+        return rows;
+    }
+
+    /**
+     * Relevance of the texts for typeahead input, like the full-text indexes every word of the
+     * input has to match the start of a word. Matches in the first text count double.
+     *
+     * @return the score, or 0 if some word of the input doesn't match
+     */
+    static double score(String input, String... texts) {
+        double score = 0;
+        for (String word : input.trim().toLowerCase().split("\\s+")) {
+            if (word.isEmpty()) continue;
+            double best = 0;
+            for (int i = 0; i < texts.length && best == 0; i++) {
+                if (texts[i] == null) continue;
+                for (String candidate : texts[i].toLowerCase().split("\\W+")) {
+                    if (candidate.startsWith(word)) {
+                        best = i == 0 ? 2 : 1;
+                        break;
+                    }
+                }
+            }
+            if (best == 0) return 0;
+            score += best;
+        }
+        return score;
+    }
+
+    boolean isFavorite(String userId, String movieId) {
+        return userId != null && favorites.getOrDefault(userId, Set.of()).contains(movieId);
+    }
+
+    Set<String> favoritesOf(String userId) {
+        return favorites.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet());
+    }
+}
@@ -0,0 +1,68 @@
+package neoflix.services.fixture;
+
+import neoflix.Params;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Sorting and paging of fixture rows with the semantics of the list query templates: rows
+ * without the sort key are left out, ties are broken by the id, and an `after` cursor
+ * starts the page behind the cursor position instead of skipping rows.
+ */
+final class FixturePaging {
+
+    private FixturePaging() {
+    }
+
+    /**
+     * @param field  the sort key, the cursor has to be issued for it
+     * @param idPath unique id of a row, a dotted path for nested values
+     * @return the requested page of the rows
+     */
+    static List<Map<String, Object>> page(Collection<Map<String, Object>> rows, Params params,
+                                          String field, String idPath) {
+        var after = params.after() == null ? null : params.after().requireField(field);
+        Comparator<Map<String, Object>> order = Comparator
+                .<Map<String, Object>, Object>comparing(row -> row.get(field), FixturePaging::compare)
+                .thenComparing(row -> lookup(row, idPath), FixturePaging::compare);
+        if (params.order() == Params.Order.DESC) order = order.reversed();
+        Stream<Map<String, Object>> page = rows.stream()
+                .filter(row -> row.get(field) != null)
+                .sorted(order);
+        if (after != null) {
+            int direction = params.order() == Params.Order.DESC ? -1 : 1;
+            page = page.filter(row -> {
+                int byKey = compare(row.get(field), after.key());
+                int byId = byKey != 0 ? byKey : compare(String.valueOf(lookup(row, idPath)), after.id());
+                return byId * direction > 0;
+            });
+        } else {
+            page = page.skip(params.skip());
+        }
+        return page.limit(params.limit()).toList();
+    }
+
+    /**
+     * Numbers compare by value whatever their type, cursors come back from JSON as doubles.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object a, Object b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+        if (a instanceof Number x && b instanceof Number y) return Double.compare(x.doubleValue(), y.doubleValue());
+        if (a.getClass() == b.getClass() && a instanceof Comparable c) return c.compareTo(b);
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static Object lookup(Map<String, Object> row, String path) {
+        Object value = row;
+        for (String part : path.split("\\.")) {
+            if (!(value instanceof Map<?, ?> map)) return null;
+            value = map.get(part);
+        }
+        return value;
+    }
+}
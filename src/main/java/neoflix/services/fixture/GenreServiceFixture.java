@@ -0,0 +1,35 @@
+package neoflix.services.fixture;
+
+import neoflix.services.Genres;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Genres} from the `genres` fixture, with the movie counts and posters of the full dataset.
+ */
+public class GenreServiceFixture implements Genres {
+
+    private final FixtureData data;
+
+    public GenreServiceFixture(FixtureData data) {
+        this.data = data;
+    }
+
+    @Override
+    public List<Map<String, Object>> all() {
+        return data.genres;
+    }
+
+    /**
+     * @throws NoSuchRecordException if there is no genre with this name, like the query's `single()`
+     */
+    @Override
+    public Map<String, Object> find(String name) {
+        return data.genres.stream()
+                .filter(genre -> genre.get("name").equals(name))
+                .findFirst()
+                .orElseThrow(() -> new NoSuchRecordException("Genre " + name + " not found"));
+    }
+}
@@ -0,0 +1,103 @@
+package neoflix.services.fixture;
+
+import neoflix.Params;
+import neoflix.services.Movies;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Movies} over the fixture movies. Genre, actor and director lists contain the movies
+ * the fixtures know about for them, which for most people is only the movies they appear in.
+ */
+public class MovieServiceFixture implements Movies {
+
+    private final FixtureData data;
+
+    public MovieServiceFixture(FixtureData data) {
+        this.data = data;
+    }
+
+    @Override
+    public List<Map<String, Object>> all(Params params, String userId) {
+        return page(data.movies.keySet(), params, userId);
+    }
+
+    @Override
+    public List<Map<String, Object>> search(Params params, String userId) {
+        var rows = new ArrayList<Map<String, Object>>();
+        for (var id : data.movies.keySet()) {
+            var row = data.movieRow(id, userId);
+            double score = FixtureData.score(params.query(), (String) row.get("title"), (String) row.get("plot"));
+            if (score > 0) {
+                row.put("score", score);
+                rows.add(row);
+            }
+        }
+        return FixturePaging.page(rows, params, params.sort(Params.Sort.score).name(), "tmdbId");
+    }
+
+    /**
+     * @throws NoSuchRecordException if there is no movie with this id, like the query's `single()`
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> findById(String id, String userId) {
+        var movie = data.movies.get(id);
+        if (movie == null) throw new NoSuchRecordException("Movie " + id + " not found");
+        var details = new LinkedHashMap<>(data.movieRow(id, userId));
+        details.put("actors", movie.getOrDefault("actors", List.of()));
+        details.put("directors", movie.getOrDefault("directors", List.of()));
+        details.put("genres", ((List<Map<String, Object>>) movie.getOrDefault("genres", List.of())).stream()
+                .map(genre -> Map.of("name", genre.get("name")))
+                .toList());
+        return details;
+    }
+
+    /**
+     * Movies sharing genres, actors or directors with the movie, scored by the number of things
+     * in common times their rating.
+     */
+    @Override
+    public List<Map<String, Object>> getSimilarMovies(String id, Params params, String userId) {
+        var related = data.related.getOrDefault(id, Set.of());
+        var rows = new ArrayList<Map<String, Object>>();
+        for (var other : data.movies.keySet()) {
+            if (other.equals(id)) continue;
+            var common = new HashSet<>(data.related.get(other));
+            common.retainAll(related);
+            var row = data.movieRow(other, userId);
+            if (common.isEmpty() || !(row.get("imdbRating") instanceof Number rating)) continue;
+            row.put("score", rating.doubleValue() * common.size());
+            rows.add(row);
+        }
+        rows.sort((a, b) -> Double.compare((Double) b.get("score"), (Double) a.get("score")));
+        return rows.stream().skip(params.skip()).limit(params.limit()).toList();
+    }
+
+    @Override
+    public List<Map<String, Object>> byGenre(String name, Params params, String userId) {
+        return page(data.moviesByGenre.getOrDefault(name, Set.of()), params, userId);
+    }
+
+    @Override
+    public List<Map<String, Object>> getForActor(String actorId, Params params, String userId) {
+        return page(data.moviesByActor.getOrDefault(actorId, Set.of()), params, userId);
+    }
+
+    @Override
+    public List<Map<String, Object>> getForDirector(String directorId, Params params, String userId) {
+        return page(data.moviesByDirector.getOrDefault(directorId, Set.of()), params, userId);
+    }
+
+    private List<Map<String, Object>> page(Set<String> ids, Params params, String userId) {
+        var sort = params.sort(Params.Sort.title);
+        if (!Params.MOVIE_SORT.contains(sort)) sort = Params.Sort.title;
+        return FixturePaging.page(data.movieRows(ids, userId), params, sort.name(), "tmdbId");
+    }
+}
@@ -0,0 +1,98 @@
+package neoflix.services.fixture;
+
+import neoflix.Params;
+import neoflix.services.People;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link People} over everybody the fixtures mention, as a person or in the cast of a movie.
+ */
+public class PeopleServiceFixture implements People {
+
+    private final FixtureData data;
+
+    public PeopleServiceFixture(FixtureData data) {
+        this.data = data;
+    }
+
+    @Override
+    public List<Map<String, Object>> all(Params params) {
+        boolean search = params.query() != null && !params.query().isBlank();
+        var sort = sortOf(params);
+        var rows = new ArrayList<Map<String, Object>>();
+        for (var person : data.people.values()) {
+            double score = search ? FixtureData.score(params.query(), (String) person.get("name")) : 1;
+            if (score > 0) {
+                var row = new LinkedHashMap<>(person);
+                // only counted when sorting by it, like the movieCount variants of the query
+                if (sort == Params.Sort.movieCount) row.put("movieCount", movieCount((String) person.get("tmdbId")));
+                if (search) row.put("score", score);
+                rows.add(row);
+            }
+        }
+        return FixturePaging.page(rows, params, sort.name(), "tmdbId");
+    }
+
+    /**
+     * Same choice as {@link neoflix.services.PeopleService#sortOf(Params)}: search results by
+     * any of {@link Params#PEOPLE_SORT}, the full list by all of them but score, by name otherwise.
+     */
+    @Override
+    public Params.Sort sortOf(Params params) {
+        boolean search = params.query() != null && !params.query().isBlank();
+        var sort = params.sort(search ? Params.Sort.score : Params.Sort.name);
+        if (!Params.PEOPLE_SORT.contains(sort) || (sort == Params.Sort.score && !search)) {
+            return search ? Params.Sort.score : Params.Sort.name;
+        }
+        return sort;
+    }
+
+    // like `size((p)-[:ACTED_IN|DIRECTED]->())`, a movie the person acted in and directed counts twice
+    private int movieCount(String id) {
+        return data.moviesByActor.getOrDefault(id, Set.of()).size()
+                + data.moviesByDirector.getOrDefault(id, Set.of()).size();
+    }
+
+    /**
+     * @throws NoSuchRecordException if there is no person with this id, like the query's `single()`
+     */
+    @Override
+    public Map<String, Object> findById(String id) {
+        var person = data.people.get(id);
+        if (person == null) throw new NoSuchRecordException("Person " + id + " not found");
+        var row = new LinkedHashMap<>(person);
+        row.put("actedCount", data.moviesByActor.getOrDefault(id, Set.of()).size());
+        row.put("directedCount", data.moviesByDirector.getOrDefault(id, Set.of()).size());
+        return row;
+    }
+
+    /**
+     * People who acted in or directed the same movies, most movies in common first.
+     */
+    @Override
+    public List<Map<String, Object>> getSimilarPeople(String id, Params params) {
+        var own = data.moviesByPerson.getOrDefault(id, Set.of());
+        var rows = new ArrayList<Map<String, Object>>();
+        data.moviesByPerson.forEach((person, ids) -> {
+            if (person.equals(id) || !data.people.containsKey(person)) return;
+            var inCommon = new ArrayList<Map<String, Object>>();
+            for (var movie : ids) {
+                if (own.contains(movie)) {
+                    inCommon.add(Map.of("tmdbId", movie, "title", data.movies.get(movie).get("title")));
+                }
+            }
+            if (inCommon.isEmpty()) return;
+            var row = new LinkedHashMap<>(findById(person));
+            row.put("inCommon", inCommon);
+            rows.add(row);
+        });
+        rows.sort((a, b) -> Integer.compare(((List<?>) b.get("inCommon")).size(), ((List<?>) a.get("inCommon")).size()));
+        return rows.stream().skip(params.skip()).limit(params.limit()).toList();
+    }
+}
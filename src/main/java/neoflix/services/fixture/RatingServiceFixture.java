@@ -0,0 +1,48 @@
+package neoflix.services.fixture;
+
+import neoflix.Params;
+import neoflix.ValidationException;
+import neoflix.services.Ratings;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link Ratings} with the `ratings` fixture as the reviews of Pulp Fiction, plus the ratings
+ * added while the app is running.
+ */
+public class RatingServiceFixture implements Ratings {
+
+    private final FixtureData data;
+
+    public RatingServiceFixture(FixtureData data) {
+        this.data = data;
+    }
+
+    @Override
+    public List<Map<String, Object>> forMovie(String id, Params params) {
+        // the query only supports sorting by timestamp
+        return FixturePaging.page(data.reviews.getOrDefault(id, List.of()), params,
+                Params.Sort.timestamp.name(), "user.userId");
+    }
+
+    @Override
+    public Map<String, Object> add(String userId, String movieId, int rating) {
+        var user = data.usersById.get(userId);
+        if (user == null || !data.movies.containsKey(movieId)) {
+            throw new ValidationException("Movie or user not found to add rating",
+                    Map.of("movie", movieId, "user", userId));
+        }
+        var reviews = data.reviews.computeIfAbsent(movieId, k -> new CopyOnWriteArrayList<>());
+        synchronized (reviews) {
+            // one rating per user and movie, like the MERGE of the RATED relationship
+            reviews.removeIf(review -> userId.equals(((Map<?, ?>) review.get("user")).get("userId")));
+            reviews.add(FixtureData.review((long) rating, System.currentTimeMillis(), userId, (String) user.get("name")));
+        }
+        var movie = data.movieRow(movieId, userId);
+        movie.remove("favorite");
+        movie.put("rating", (long) rating);
+        return movie;
+    }
+}
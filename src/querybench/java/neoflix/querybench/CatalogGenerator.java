@@ -0,0 +1,181 @@
+package neoflix.querybench;
+
+import neoflix.AppUtils;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Values;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates a movie catalog with the shape of the recommendations dataset: movies in one to
+ * three genres with four actors and a director each, and users who rate about eight movies per
+ * movie in the catalog on average. The sizes of all parts follow the number of movies, so runs
+ * at different scales are comparable.
+ *
+ * About one movie in twenty has no `imdbRating` and one in ten no `poster`, like in the real data.
+ */
+final class CatalogGenerator {
+
+    private static final int BATCH = 1000;
+    private static final String[] WORDS = ("love night city dark last story man woman house war king girl "
+            + "day life blood dead star world time home secret road river summer winter lost black").split(" ");
+    private static final String[] FIRST = ("Tom Anna Al Meg John Sofia Robert Diane Denzel Julia Ethan Grace "
+            + "Morgan Keanu Cate Spike Jodie Martin Frances Brad").split(" ");
+    private static final String[] LAST = ("Hanks Ryan Pacino Keaton Smith Coppola Freeman Roberts Hawke Kelly "
+            + "Reeves Blanchett Lee Foster Scorsese McDormand Pitt Jones Nolan Gerwig").split(" ");
+
+    private final Driver driver;
+    private final int movies;
+    private final int people;
+    private final int users;
+    private final Random random;
+    private final List<String> genres;
+
+    CatalogGenerator(Driver driver, int movies, long seed) {
+        this.driver = driver;
+        this.movies = movies;
+        this.people = movies;
+        this.users = Math.max(10, movies / 10);
+        this.random = new Random(seed);
+        this.genres = AppUtils.loadFixtureList("genres").stream().map(g -> (String) g.get("name")).toList();
+    }
+
+    static String movieId(int i) {
+        return String.valueOf(i + 1);
+    }
+
+    static String personId(int i) {
+        return String.valueOf(1_000_000 + i);
+    }
+
+    static String userId(int i) {
+        return "user-" + i;
+    }
+
+    /**
+     * Create the catalog, expects an empty database with the schema of {@link neoflix.SchemaManager}.
+     */
+    void generate() {
+        long start = System.currentTimeMillis();
+        var rows = new ArrayList<Map<String, Object>>();
+        for (var genre : genres) {
+            rows.add(Map.of("name", genre));
+        }
+        write("UNWIND $rows AS row CREATE (:Genre {name: row.name})", rows);
+
+        rows.clear();
+        for (int i = 0; i < people; i++) {
+            var person = new HashMap<String, Object>();
+            person.put("tmdbId", personId(i));
+            person.put("name", FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + " " + i);
+            person.put("born", LocalDate.of(1930 + random.nextInt(70), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            person.put("poster", "https://image.tmdb.org/t/p/w440_and_h660_face/p" + i + ".jpg");
+            rows.add(person);
+        }
+        write("UNWIND $rows AS row CREATE (p:Person) SET p = row", rows);
+
+        rows.clear();
+        for (int i = 0; i < users; i++) {
+            rows.add(Map.of("userId", userId(i), "email", userId(i) + "@example.com", "name", "User " + i));
+        }
+        write("UNWIND $rows AS row CREATE (u:User) SET u = row", rows);
+
+        rows.clear();
+        for (int i = 0; i < movies; i++) {
+            rows.add(movie(i));
+        }
+        write("UNWIND $rows AS row CREATE (m:Movie) SET m = row", rows);
+
+        var inGenre = new ArrayList<Map<String, Object>>();
+        var actedIn = new ArrayList<Map<String, Object>>();
+        var directed = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < movies; i++) {
+            for (var genre : sample(genres.size(), 1 + random.nextInt(3))) {
+                inGenre.add(Map.of("movie", movieId(i), "genre", genres.get(genre)));
+            }
+            for (var actor : sample(people, 4)) {
+                actedIn.add(Map.of("movie", movieId(i), "person", personId(actor), "role", WORDS[random.nextInt(WORDS.length)]));
+            }
+            directed.add(Map.of("movie", movieId(i), "person", personId(random.nextInt(people))));
+        }
+        write("""
+                UNWIND $rows AS row
+                MATCH (m:Movie {tmdbId: row.movie}), (g:Genre {name: row.genre})
+                CREATE (m)-[:IN_GENRE]->(g)""", inGenre);
+        write("""
+                UNWIND $rows AS row
+                MATCH (m:Movie {tmdbId: row.movie}), (p:Person {tmdbId: row.person})
+                CREATE (p)-[:ACTED_IN {role: row.role}]->(m)""", actedIn);
+        write("""
+                UNWIND $rows AS row
+                MATCH (m:Movie {tmdbId: row.movie}), (p:Person {tmdbId: row.person})
+                CREATE (p)-[:DIRECTED]->(m)""", directed);
+
+        var rated = new ArrayList<Map<String, Object>>();
+        int perUser = Math.max(1, movies * 8 / users);
+        for (int i = 0; i < users; i++) {
+            for (var movie : sample(movies, Math.min(movies, perUser))) {
+                rated.add(Map.of("user", userId(i), "movie", movieId(movie), "rating", 1 + random.nextInt(5),
+                        "timestamp", 1_400_000_000L + random.nextInt(200_000_000)));
+            }
+        }
+        write("""
+                UNWIND $rows AS row
+                MATCH (u:User {userId: row.user}), (m:Movie {tmdbId: row.movie})
+                CREATE (u)-[:RATED {rating: row.rating, timestamp: row.timestamp}]->(m)""", rated);
+
+        System.out.printf("Generated %d movies, %d people, %d users and %d ratings in %d ms%n",
+                movies, people, users, rated.size(), System.currentTimeMillis() - start);
+    }
+
+    private Map<String, Object> movie(int i) {
+        var movie = new HashMap<String, Object>();
+        var released = LocalDate.of(1920 + random.nextInt(100), 1 + random.nextInt(12), 1 + random.nextInt(28));
+        movie.put("tmdbId", movieId(i));
+        movie.put("title", words(1 + random.nextInt(3)) + " " + i);
+        movie.put("plot", words(12 + random.nextInt(12)));
+        movie.put("released", released.toString());
+        movie.put("year", released.getYear());
+        movie.put("runtime", 80 + random.nextInt(100));
+        movie.put("languages", List.of("English"));
+        if (random.nextInt(20) != 0) movie.put("imdbRating", Math.round((1 + random.nextDouble() * 8.9) * 10) / 10.0);
+        if (random.nextInt(10) != 0) movie.put("poster", "https://image.tmdb.org/t/p/w440_and_h660_face/m" + i + ".jpg");
+        return movie;
+    }
+
+    private String words(int count) {
+        var text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(' ');
+            var word = WORDS[random.nextInt(WORDS.length)];
+            text.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return up to `count` distinct numbers below `bound`
+     */
+    private List<Integer> sample(int bound, int count) {
+        var picked = new HashSet<Integer>();
+        while (picked.size() < Math.min(count, bound)) {
+            picked.add(random.nextInt(bound));
+        }
+        return new ArrayList<>(picked);
+    }
+
+    private void write(String query, List<Map<String, Object>> rows) {
+        try (var session = driver.session()) {
+            for (int from = 0; from < rows.size(); from += BATCH) {
+                var batch = rows.subList(from, Math.min(rows.size(), from + BATCH));
+                session.writeTransaction(tx -> tx.run(query, Values.parameters("rows", batch)).consume());
+            }
+        }
+    }
+}
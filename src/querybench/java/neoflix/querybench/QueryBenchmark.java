@@ -0,0 +1,229 @@
+package neoflix.querybench;
+
+import com.google.gson.GsonBuilder;
+import neoflix.Params;
+import neoflix.SchemaManager;
+import neoflix.metrics.LatencyHistogram;
+import neoflix.services.QueryLog;
+import neoflix.services.Services;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.summary.ProfiledPlan;
+import org.neo4j.driver.summary.QueryType;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Benchmarks the Cypher queries of the services against an embedded Neo4j.
+ *
+ * For every scale a fresh in-process database is started, the schema of {@link SchemaManager}
+ * is created and a catalog of that many movies is generated. The services are then called
+ * once with typical parameters and every query they send is recorded by its name through
+ * {@link QueryLog#listen}. Each recorded read query, and each alternative of it in
+ * {@link QueryVariants}, is profiled once for rows and db hits and then timed. Write queries
+ * are listed but not timed, repeating them would change the data.
+ *
+ * Settings are system properties or `KEY=VALUE` arguments:
+ *
+ * <pre>
+ * QUERY_BENCH_SCALES=1000,10000   number of movies per run
+ * QUERY_BENCH_WARMUP=20           untimed executions per query
+ * QUERY_BENCH_ITERATIONS=100      timed executions per query
+ * QUERY_BENCH_SEED=42
+ * QUERY_BENCH_RESULT=target/query-bench.json
+ * </pre>
+ */
+public class QueryBenchmark {
+
+    /**
+     * @param variant `service` for the query the service sends, otherwise the label of the alternative
+     * @param rows    rows returned, from the profile
+     * @param dbHits  db hits of all operators, from the profile
+     */
+    record Measurement(int scale, String query, String variant, String type, long rows, long dbHits,
+                       double p50Millis, double p99Millis, double meanMillis) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (var arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) System.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        var scales = System.getProperty("QUERY_BENCH_SCALES", "1000,10000").split(",");
+        int warmup = Integer.parseInt(System.getProperty("QUERY_BENCH_WARMUP", "20"));
+        int iterations = Integer.parseInt(System.getProperty("QUERY_BENCH_ITERATIONS", "100"));
+        long seed = Long.parseLong(System.getProperty("QUERY_BENCH_SEED", "42"));
+        var result = Path.of(System.getProperty("QUERY_BENCH_RESULT", "target/query-bench.json"));
+        // the benchmark times the queries itself
+        System.setProperty("SLOW_QUERY_MILLIS", "0");
+        // every scale has to send its queries to its own database, not answer them from the last one's results
+        System.setProperty("QUERY_CACHE_MAX_BYTES", "0");
+
+        var measurements = new ArrayList<Measurement>();
+        for (var value : scales) {
+            int scale = Integer.parseInt(value.trim());
+            try (var neo4j = Neo4jBuilders.newInProcessBuilder().withDisabledServer().build();
+                 var driver = GraphDatabase.driver(neo4j.boltURI(), AuthTokens.none())) {
+                new SchemaManager(driver).ensure();
+                new CatalogGenerator(driver, scale, seed).generate();
+                var queries = record(driver, scale);
+                var benchmark = new Runner(driver, warmup, iterations);
+                var atScale = new ArrayList<Measurement>();
+                for (var query : queries.values()) {
+                    atScale.add(benchmark.measure(scale, query.variant(), "service", query.text(), query.parameters()));
+                    for (var alternative : QueryVariants.ALTERNATIVES.getOrDefault(query.name(), List.of())) {
+                        atScale.add(benchmark.measure(scale, query.variant(), alternative.label(),
+                                alternative.text(), query.parameters()));
+                    }
+                }
+                print(scale, atScale);
+                measurements.addAll(atScale);
+            }
+        }
+
+        var config = new LinkedHashMap<String, Object>();
+        config.put("scales", List.of(scales));
+        config.put("warmup", warmup);
+        config.put("iterations", iterations);
+        config.put("seed", seed);
+        if (result.getParent() != null) Files.createDirectories(result.getParent());
+        Files.writeString(result, new GsonBuilder().setPrettyPrinting().create()
+                .toJson(Map.of("config", config, "measurements", measurements)));
+        System.out.printf("Results written to %s%n", result);
+    }
+
+    /**
+     * Call the services the way the routes do and record the queries they send.
+     *
+     * @return the queries by variant name, with the parameters of their first execution
+     */
+    private static Map<String, QueryLog.Query> record(Driver driver, int scale) {
+        var queries = new LinkedHashMap<String, QueryLog.Query>();
+        QueryLog.instance().listen(query -> {
+            synchronized (queries) {
+                queries.putIfAbsent(query.variant(), query);
+            }
+        });
+        try {
+            var services = Services.neo4j(driver, "secret");
+            String movie = CatalogGenerator.movieId(scale / 2);
+            String person = CatalogGenerator.personId(scale / 3);
+            var user = services.accounts().register("bench-" + UUID.randomUUID() + "@example.com", "password", "Bench");
+            String userId = (String) user.get("userId");
+            services.accounts().authenticate((String) user.get("email"), "password");
+            services.favorites().add(userId, movie);
+            services.ratings().add(userId, movie, 5);
+
+            for (var sort : Params.MOVIE_SORT) {
+                if (sort == Params.Sort.score) continue;
+                for (var order : Params.Order.values()) {
+                    services.movies().all(new Params(null, sort, order, 6, 12), userId);
+                }
+            }
+            var first = new Params(null, Params.Sort.title, Params.Order.ASC, 6, 0);
+            var page = services.movies().all(first, userId);
+            var cursor = first.nextCursor(page, "title", "tmdbId");
+            if (cursor != null) {
+                services.movies().all(new Params(null, Params.Sort.title, Params.Order.ASC, 6, 0,
+                        Params.Cursor.decode(cursor)), userId);
+            }
+            services.movies().search(new Params("night", Params.Sort.score, Params.Order.DESC, 6, 0), userId);
+            services.movies().findById(movie, userId);
+            services.movies().getSimilarMovies(movie, new Params(null, null, Params.Order.ASC, 6, 0), userId);
+            var byRating = new Params(null, Params.Sort.imdbRating, Params.Order.DESC, 6, 0);
+            services.movies().byGenre("Drama", byRating, userId);
+            services.movies().getForActor(person, byRating, userId);
+            services.movies().getForDirector(person, byRating, userId);
+            services.favorites().all(userId, new Params(null, Params.Sort.title, Params.Order.ASC, 6, 0));
+
+            services.genres().all();
+            services.genres().find("Drama");
+
+            for (var sort : Params.PEOPLE_SORT) {
+                if (sort == Params.Sort.score) continue;
+                for (var order : Params.Order.values()) {
+                    services.people().all(new Params(null, sort, order, 6, 12));
+                }
+            }
+            var byBorn = new Params(null, Params.Sort.born, Params.Order.DESC, 6, 0);
+            var people = services.people().all(byBorn);
+            var bornCursor = byBorn.nextCursor(people, "born", "tmdbId");
+            if (bornCursor != null) {
+                services.people().all(new Params(null, Params.Sort.born, Params.Order.DESC, 6, 0,
+                        Params.Cursor.decode(bornCursor)));
+            }
+            services.people().all(new Params("tom", Params.Sort.score, Params.Order.DESC, 6, 0));
+            services.people().findById(person);
+            services.people().getSimilarPeople(person, new Params(null, null, Params.Order.ASC, 6, 0));
+
+            services.ratings().forMovie(movie, new Params(null, Params.Sort.timestamp, Params.Order.DESC, 6, 0));
+        } finally {
+            QueryLog.instance().listen(null);
+        }
+        return queries;
+    }
+
+    private static void print(int scale, List<Measurement> measurements) {
+        System.out.printf("%n%d movies%n", scale);
+        System.out.printf("%-52s %-14s %8s %10s %9s %9s%n", "query", "variant", "rows", "db hits", "p50 ms", "p99 ms");
+        for (var m : measurements) {
+            if (!m.type().equals(QueryType.READ_ONLY.name())) {
+                System.out.printf("%-52s %-14s %8s %10s  not timed, %s%n", m.query(), m.variant(), "", "", m.type());
+                continue;
+            }
+            System.out.printf("%-52s %-14s %8d %10d %9.2f %9.2f%n", m.query(), m.variant(), m.rows(), m.dbHits(),
+                    m.p50Millis(), m.p99Millis());
+        }
+    }
+
+    private static final class Runner {
+        private final Driver driver;
+        private final int warmup;
+        private final int iterations;
+
+        Runner(Driver driver, int warmup, int iterations) {
+            this.driver = driver;
+            this.warmup = warmup;
+            this.iterations = iterations;
+        }
+
+        Measurement measure(int scale, String query, String variant, String text, Value parameters) {
+            try (var session = driver.session()) {
+                var type = session.run("EXPLAIN " + text, parameters).consume().queryType();
+                if (type != QueryType.READ_ONLY) {
+                    return new Measurement(scale, query, variant, type.name(), 0, 0, 0, 0, 0);
+                }
+                var profile = session.readTransaction(tx -> tx.run("PROFILE " + text, parameters).consume()).profile();
+                var histogram = new LatencyHistogram();
+                for (int i = 0; i < warmup + iterations; i++) {
+                    long start = System.nanoTime();
+                    session.readTransaction(tx -> tx.run(text, parameters).consume());
+                    if (i >= warmup) histogram.record(System.nanoTime() - start);
+                }
+                return new Measurement(scale, query, variant, type.name(), profile.records(), dbHits(profile),
+                        histogram.percentile(0.5) / 1e6, histogram.percentile(0.99) / 1e6,
+                        histogram.sumNanos() / 1e6 / iterations);
+            } catch (RuntimeException e) {
+                System.err.printf("Could not benchmark %s (%s): %s%n", query, variant, e.getMessage());
+                return new Measurement(scale, query, variant, "FAILED", 0, 0, 0, 0, 0);
+            }
+        }
+
+        private static long dbHits(ProfiledPlan plan) {
+            long hits = plan.dbHits();
+            for (var child : plan.children()) {
+                hits += dbHits(child);
+            }
+            return hits;
+        }
+    }
+}
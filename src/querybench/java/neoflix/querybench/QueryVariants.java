@@ -0,0 +1,88 @@
+package neoflix.querybench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Alternative forms of service queries, benchmarked with the parameters the service query was
+ * sent with. To try a rewrite of a query, add it here under the query's name and compare the
+ * db hits and latencies of both forms before changing the service.
+ */
+final class QueryVariants {
+
+    /**
+     * @param label short description of the rewrite
+     * @param text  the query, with the same parameters as the service query
+     */
+    record Variant(String label, String text) {
+    }
+
+    static final Map<String, List<Variant>> ALTERNATIVES = Map.of(
+            "GenreService.all", List.of(
+                    // the form the genre fixtures were exported with
+                    new Variant("collect(m)[0]", resource("/fixtures/genres.cypher"))),
+            "GenreService.find", List.of(
+                    new Variant("CALL {} top 1", """
+                            MATCH (g:Genre {name: $name})
+                            WHERE g.name <> '(no genres listed)'
+                            CALL {
+                                WITH g
+                                MATCH (g)<-[:IN_GENRE]-(m:Movie)
+                                WHERE m.imdbRating IS NOT NULL AND m.poster IS NOT NULL
+                                RETURN m.poster AS poster
+                                ORDER BY m.imdbRating DESC LIMIT 1
+                            }
+                            RETURN g {
+                                .name,
+                                movies: size((g)<-[:IN_GENRE]-()),
+                                poster: poster
+                            } AS genre
+                            """)),
+            "MovieService.getSimilarMovies", List.of(
+                    // what the service query matches: from a movie only IN_GENRE points outwards
+                    new Variant("genres only", """
+                            MATCH (:Movie {tmdbId: $id})-[:IN_GENRE]->(:Genre)<-[:IN_GENRE]-(m:Movie)
+                            WHERE m.imdbRating IS NOT NULL
+                            WITH m, count(*) AS inCommon
+                            WITH m, inCommon, m.imdbRating * inCommon AS score
+                            ORDER BY score DESC
+                            SKIP $skip
+                            LIMIT $limit
+                            RETURN m {
+                                .*,
+                                score: score,
+                                favorite: m.tmdbId IN $favorites
+                            } AS movie
+                            """),
+                    // shared actors and directors count too, the intent of the service query
+                    new Variant("undirected", """
+                            MATCH (source:Movie {tmdbId: $id})-[:IN_GENRE|ACTED_IN|DIRECTED]-()-[:IN_GENRE|ACTED_IN|DIRECTED]-(m:Movie)
+                            WHERE m <> source AND m.imdbRating IS NOT NULL
+                            WITH m, count(*) AS inCommon
+                            WITH m, inCommon, m.imdbRating * inCommon AS score
+                            ORDER BY score DESC
+                            SKIP $skip
+                            LIMIT $limit
+                            RETURN m {
+                                .*,
+                                score: score,
+                                favorite: m.tmdbId IN $favorites
+                            } AS movie
+                            """))
+    );
+
+    private QueryVariants() {
+    }
+
+    private static String resource(String name) {
+        try (var in = QueryVariants.class.getResourceAsStream(name)) {
+            if (in == null) throw new IllegalStateException(name + " not found");
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package neoflix;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DriverConfigTest {
+
+    @AfterEach
+    void clearProperties() {
+        System.clearProperty("NEO4J_MAX_POOL_SIZE");
+        System.clearProperty("NEO4J_FETCH_SIZE");
+        System.clearProperty("NEO4J_ACQUISITION_TIMEOUT_SECONDS");
+    }
+
+    @Test
+    void readsPoolSettingsFromProperties() {
+        System.setProperty("NEO4J_MAX_POOL_SIZE", "25");
+        System.setProperty("NEO4J_FETCH_SIZE", "200");
+        System.setProperty("NEO4J_ACQUISITION_TIMEOUT_SECONDS", "5");
+
+        var config = AppUtils.driverConfig();
+
+        assertEquals(25, config.maxConnectionPoolSize());
+        assertEquals(200, config.fetchSize());
+        assertEquals(TimeUnit.SECONDS.toMillis(5), config.connectionAcquisitionTimeoutMillis());
+        assertTrue(config.isMetricsEnabled());
+    }
+}
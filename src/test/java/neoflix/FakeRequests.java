@@ -0,0 +1,29 @@
+package neoflix;
+
+import spark.Request;
+import spark.RequestResponseFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Spark requests without a server, only query parameters are supported. Shared by the tests and
+ * the benchmarks.
+ */
+public final class FakeRequests {
+
+    private FakeRequests() {
+    }
+
+    public static Request withQuery(Map<String, String> query) {
+        var raw = (HttpServletRequest) Proxy.newProxyInstance(FakeRequests.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getParameter" -> query.get((String) args[0]);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+        return RequestResponseFactory.create(raw);
+    }
+}
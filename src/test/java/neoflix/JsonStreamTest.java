@@ -0,0 +1,78 @@
+package neoflix;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Values;
+import spark.RequestResponseFactory;
+import spark.Response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JsonStreamTest {
+
+    @Test
+    void streamsTheSameJsonAsTheList() throws Exception {
+        var rows = new ArrayList<>(AppUtils.loadFixtureList("popular"));
+        var movie = new HashMap<String, Object>();
+        movie.put("tmdbId", "769");
+        movie.put("title", "Goodfellas <1990>");
+        movie.put("favorite", true);
+        movie.put("poster", null);
+        movie.put("actors", List.of(Map.of("tmdbId", "380", "name", "Robert De Niro", "born", LocalDate.of(1943, 8, 17))));
+        rows.add(movie);
+        var params = new Params(null, Params.Sort.title, Params.Order.ASC, rows.size(), 0);
+
+        var listed = JsonStream.transformer(GsonUtils.gson()).render(JsonStream.page(response(new ByteArrayOutputStream()),
+                params, "title", "tmdbId", () -> rows, sink -> rows.forEach(row -> sink.accept(Values.value(row)))));
+
+        var body = new ByteArrayOutputStream();
+        System.setProperty("STREAM_RESPONSES", "true");
+        try {
+            assertSame(JsonStream.STREAMED, JsonStream.page(response(body), params, "title", "tmdbId", () -> rows,
+                    sink -> rows.forEach(row -> sink.accept(Values.value(row)))));
+        } finally {
+            System.clearProperty("STREAM_RESPONSES");
+        }
+        // both write the same maps, the driver's maps just don't keep the key order
+        assertEquals(JsonParser.parseString(listed), JsonParser.parseString(body.toString(StandardCharsets.UTF_8)));
+    }
+
+    private static Response response(ByteArrayOutputStream body) {
+        var out = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        };
+        var raw = (HttpServletResponse) Proxy.newProxyInstance(JsonStreamTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getOutputStream" -> out;
+                    case "isCommitted" -> false;
+                    default -> null;
+                });
+        return RequestResponseFactory.create(raw);
+    }
+}
@@ -0,0 +1,70 @@
+package neoflix;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static neoflix.Params.Order.ASC;
+import static neoflix.Params.Order.DESC;
+import static neoflix.Params.Sort.imdbRating;
+import static neoflix.Params.Sort.score;
+import static neoflix.Params.Sort.title;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParamsTest {
+
+    @Test
+    void cursorRoundTrip() {
+        var cursor = new Params.Cursor("imdbRating", 8.7, "769");
+        var decoded = Params.Cursor.decode(cursor.encode());
+        assertEquals(cursor, decoded);
+        assertNull(Params.Cursor.decode(null));
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThrows(ValidationException.class, () -> Params.Cursor.decode("not a cursor"));
+        var cursor = new Params.Cursor("title", "Heat", "949");
+        assertThrows(ValidationException.class, () -> cursor.requireField("imdbRating"));
+    }
+
+    @Test
+    void nextCursorPointsAfterLastRow() {
+        var params = new Params(null, imdbRating, DESC, 2, 0);
+        var page = List.<Map<String, Object>>of(
+                Map.of("tmdbId", "278", "imdbRating", 9.3),
+                Map.of("tmdbId", "238", "imdbRating", 9.2));
+        var next = Params.Cursor.decode(params.nextCursor(page, "imdbRating", "tmdbId"));
+        assertEquals(new Params.Cursor("imdbRating", 9.2, "238"), next);
+
+        assertNull(params.nextCursor(page.subList(0, 1), "imdbRating", "tmdbId"), "last page has no cursor");
+
+        var people = List.<Map<String, Object>>of(Map.of("tmdbId", "1158", "born", LocalDate.of(1940, 4, 25)));
+        var born = Params.Cursor.decode(new Params(null, Params.Sort.born, DESC, 1, 0).nextCursor(people, "born", "tmdbId"));
+        assertEquals(new Params.Cursor("born", "1940-04-25", "1158"), born);
+    }
+
+    @Test
+    void parsesQueryParameters() {
+        var params = Params.parse(FakeRequests.withQuery(Map.of("q", "godfather", "order", "desc", "limit", "20")), Params.MOVIE_SORT, true);
+        assertEquals(new Params("godfather", score, DESC, 20, 0), params);
+
+        var after = new Params.Cursor("imdbRating", 8.7, "769");
+        params = Params.parse(FakeRequests.withQuery(Map.of("sort", "imdbRating", "after", after.encode(), "skip", "40")),
+                Params.MOVIE_SORT);
+        assertEquals(imdbRating, params.sort());
+        assertEquals(after, params.after());
+        assertEquals(0, params.skip(), "a cursor replaces skip");
+
+        // search results are ranked best first unless an order is given
+        assertEquals(new Params("tom", score, DESC, 6, 0), Params.parse(FakeRequests.withQuery(Map.of("q", "tom")), Params.PEOPLE_SORT, true));
+        assertEquals(ASC, Params.parse(FakeRequests.withQuery(Map.of("q", "tom", "order", "asc")), Params.PEOPLE_SORT, true).order());
+        assertEquals(ASC, Params.parse(FakeRequests.withQuery(Map.of("q", "tom", "sort", "name")), Params.PEOPLE_SORT, true).order());
+
+        // routes that don't search can't rank by score, e.g. the movies of a genre
+        assertEquals(title, Params.parse(FakeRequests.withQuery(Map.of("q", "godfather")), Params.MOVIE_SORT).sort());
+        assertEquals(title, Params.parse(FakeRequests.withQuery(Map.of("sort", "score")), Params.MOVIE_SORT).sort());
+    }
+}
@@ -0,0 +1,84 @@
+package neoflix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+
+    @Test
+    void hashesAndVerifies() {
+        var hasher = new PasswordHasher(1, 1, 4);
+        var hashed = hasher.hash("letmein", 4);
+
+        assertTrue(hasher.verify("letmein", hashed));
+        assertFalse(hasher.verify("letmeout", hashed));
+        assertEquals(3, hasher.stats().completed());
+    }
+
+    @Test
+    void rehashesPasswordsWithAnotherCost() {
+        var hasher = new PasswordHasher(1, 1, 5);
+
+        assertFalse(hasher.needsRehash(hasher.hash("letmein")));
+        assertTrue(hasher.needsRehash(hasher.hash("letmein", 4)));
+        assertFalse(hasher.needsRehash("not a bcrypt hash"));
+    }
+
+    @Test
+    void calibratesWithinTheBudget() {
+        var hasher = new PasswordHasher(1, 1, 12);
+
+        assertEquals(PasswordHasher.MIN_COST, hasher.calibrate(0));
+        assertEquals(PasswordHasher.MIN_COST, hasher.cost());
+    }
+
+    @Test
+    void rejectsJobsWhenTheQueueIsFull() throws Exception {
+        var hasher = new PasswordHasher(1, 1, 4);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var running = CompletableFuture.supplyAsync(() -> hasher.run(() -> {
+            started.countDown();
+            release.await();
+            return 1;
+        }));
+        started.await();
+        var queued = CompletableFuture.supplyAsync(() -> hasher.run(() -> 2));
+        while (hasher.stats().queued() == 0) Thread.onSpinWait();
+
+        var e = assertThrows(OverloadedException.class, () -> hasher.run(() -> 3));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertEquals(1, hasher.stats().rejected());
+
+        release.countDown();
+        assertEquals(1, running.get());
+        assertEquals(2, queued.get());
+    }
+
+    @Test
+    void rejectsJobsThatWaitTooLong() throws Exception {
+        var hasher = new PasswordHasher(1, 1, 4, 50);
+        var release = new CountDownLatch(1);
+        var running = CompletableFuture.supplyAsync(() -> hasher.run(() -> {
+            release.await();
+            return 1;
+        }, 0));
+        while (hasher.stats().active() == 0) Thread.onSpinWait();
+
+        var e = assertThrows(OverloadedException.class, () -> hasher.run(() -> 2));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertEquals(1, hasher.stats().rejected());
+        // the cancelled job gave its place in the queue back
+        assertEquals(0, hasher.stats().queued());
+
+        release.countDown();
+        assertEquals(1, running.get());
+    }
+}
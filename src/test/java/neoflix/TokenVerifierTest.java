@@ -0,0 +1,74 @@
+package neoflix;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenVerifierTest {
+
+    @Test
+    void answersRepeatedTokensFromTheCache() {
+        var verifier = new TokenVerifier("secret", 10, System::currentTimeMillis);
+        var token = AuthUtils.sign("1", Map.of("name", "GraphAcademy"), "secret");
+
+        assertEquals("1", verifier.verify(token));
+        assertEquals("1", verifier.verify(token));
+
+        var stats = verifier.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void verifiesTokensAgainOnceTheyExpire() {
+        var now = new AtomicLong(System.currentTimeMillis());
+        var verifier = new TokenVerifier("secret", 10, now::get);
+        var token = JWT.create()
+                .withIssuer("auth0")
+                .withSubject("1")
+                .withExpiresAt(new Date(now.get() + 60_000))
+                .sign(Algorithm.HMAC256("secret"));
+        verifier.verify(token);
+
+        now.addAndGet(61_000);
+
+        // the library checks exp against the real clock, only the cache sees the token as expired
+        verifier.verify(token);
+        assertEquals(0, verifier.stats().hits());
+        assertEquals(2, verifier.stats().misses());
+        assertEquals(0, verifier.stats().size());
+    }
+
+    @Test
+    void doesNotCacheInvalidTokens() {
+        var verifier = new TokenVerifier("secret", 10, System::currentTimeMillis);
+        var token = AuthUtils.sign("1", Map.of(), "another secret");
+
+        assertThrows(JWTVerificationException.class, () -> verifier.verify(token));
+        assertThrows(JWTVerificationException.class, () -> verifier.verify(token));
+        assertEquals(2, verifier.stats().misses());
+        assertEquals(0, verifier.stats().size());
+    }
+
+    @Test
+    void staysAroundItsBound() {
+        var verifier = new TokenVerifier("secret", 10, System::currentTimeMillis);
+        for (int i = 0; i < 25; i++) {
+            verifier.verify(AuthUtils.sign(String.valueOf(i), Map.of(), "secret"));
+        }
+
+        assertTrue(verifier.stats().size() <= 10);
+        assertEquals(25, verifier.stats().verifications());
+    }
+}
@@ -0,0 +1,43 @@
+package neoflix;
+
+import neoflix.services.Services;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmUpTest {
+
+    private static Services services;
+
+    @BeforeAll
+    static void load() {
+        System.setProperty("SALT_ROUNDS", "4");
+        System.setProperty("WARMUP_ROUNDS", "1");
+        System.setProperty("WARMUP_ITERATIONS", "10");
+        services = Services.fixtures("warm-up-test");
+    }
+
+    @Test
+    void readyOnlyAfterWarmUp() {
+        var warmUp = new WarmUp(services, null, "warm-up-test", GsonUtils.gson());
+        assertFalse(warmUp.done());
+        warmUp.run();
+        assertTrue(warmUp.done());
+    }
+
+    @Test
+    void skippedWarmUpIsReady() {
+        var warmUp = new WarmUp(services, null, "warm-up-test", GsonUtils.gson());
+        warmUp.skip();
+        assertTrue(warmUp.done());
+    }
+
+    @Test
+    void leavesSharedTokenCacheAlone() {
+        new WarmUp(services, null, "warm-up-test", GsonUtils.gson()).run();
+        var stats = TokenVerifier.forSecret("warm-up-test").stats();
+        assertEquals(0, stats.misses());
+        assertEquals(0, stats.size());
+    }
+}
@@ -4,6 +4,7 @@ package neoflix;
 
 import neoflix.services.AuthService;
 import neoflix.services.FavoriteService;
+import neoflix.services.FavoritesCache;
 import neoflix.services.MovieService;
 import org.junit.jupiter.api.*;
 import org.neo4j.driver.Driver;
@@ -44,6 +45,7 @@ class _08_FavoriteFlagTest {
                     tx.run("MATCH (u:User {userId: $userId})-[r:HAS_FAVORITE]->(m:Movie) DELETE r",
                             Values.parameters("userId", userId)));
         }
+        FavoritesCache.instance().invalidate(userId);
     }
 
     @Test
@@ -0,0 +1,22 @@
+package neoflix.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestTimingTest {
+
+    @Test
+    void addsUpPhasesWithTheSameName() {
+        RequestTiming.start();
+        RequestTiming.add("auth", null, 80_000);
+        RequestTiming.add("db", "MovieService.getUserFavorites", 1_204_000);
+        RequestTiming.add("db", "MovieService.all", 4_310_000);
+        RequestTiming.add("db", "MovieService.all", 1_000_000);
+        RequestTiming.add("serialize", null, 520_000);
+
+        assertEquals("auth;dur=0.08, db;desc=MovieService.getUserFavorites;dur=1.20, "
+                        + "db;desc=MovieService.all;dur=5.31, serialize;dur=0.52, total;dur=12.00",
+                RequestTiming.header(12_000_000));
+    }
+}
@@ -0,0 +1,32 @@
+package neoflix.metrics;
+
+import org.junit.jupiter.api.Test;
+import spark.route.HttpMethod;
+import spark.routematch.RouteMatch;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteMetricsTest {
+
+    @Test
+    void matchesRequestsToTheirTemplate() {
+        var metrics = new RouteMetrics();
+        metrics.routesRegistered(List.of(
+                new RouteMatch(null, "*", null, "*/*", HttpMethod.before),
+                new RouteMatch(null, "/api/movies", null, "*/*", HttpMethod.get),
+                new RouteMatch(null, "/api/movies/:id", null, "*/*", HttpMethod.get),
+                new RouteMatch(null, "/api/movies/:id/similar", null, "*/*", HttpMethod.get),
+                new RouteMatch(null, "/api/account/favorites/:id", null, "*/*", HttpMethod.post)));
+
+        assertEquals("/api/movies", metrics.match("GET", "/api/movies").template);
+        assertEquals("/api/movies", metrics.match("GET", "/api/movies/").template);
+        assertEquals("/api/movies/:id", metrics.match("GET", "/api/movies/769").template);
+        assertEquals("/api/movies/:id/similar", metrics.match("GET", "/api/movies/769/similar").template);
+        assertEquals("/api/account/favorites/:id", metrics.match("POST", "/api/account/favorites/769").template);
+        assertEquals("unmatched", metrics.match("DELETE", "/api/account/favorites/769").template);
+        assertEquals("unmatched", metrics.match("GET", "/api/movies/769/ratings").template);
+        assertEquals("unmatched", metrics.match("GET", "/api").template);
+    }
+}
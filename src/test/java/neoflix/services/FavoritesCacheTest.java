@@ -0,0 +1,67 @@
+package neoflix.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FavoritesCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private List<String> read(String userId) {
+        reads.incrementAndGet();
+        return List.of("680");
+    }
+
+    @Test
+    void readsFavoritesAgainAfterTheTtl() {
+        var cache = new FavoritesCache(10, 1_000, now::get);
+        assertEquals(Set.of("680"), cache.get("user", this::read));
+        now.addAndGet(999);
+        cache.get("user", this::read);
+        assertEquals(1, reads.get());
+
+        now.addAndGet(1);
+        cache.get("user", this::read);
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    void localWritesDontExtendTheTtl() {
+        var cache = new FavoritesCache(10, 1_000, now::get);
+        cache.get("user", this::read);
+        now.addAndGet(500);
+        cache.added("user", "13");
+        assertEquals(Set.of("680", "13"), cache.get("user", this::read));
+        assertEquals(1, reads.get());
+
+        now.addAndGet(500);
+        // another instance may have changed the favorites meanwhile, so they are read again
+        assertEquals(Set.of("680"), cache.get("user", this::read));
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    void writesOnlyDiscardRacingLoadsOfTheSameUser() {
+        var cache = new FavoritesCache(10, 1_000, now::get);
+        cache.get("user", id -> {
+            cache.added("other", "13");
+            return read(id);
+        });
+        cache.get("user", this::read);
+        assertEquals(1, reads.get());
+
+        cache.get("other", id -> {
+            cache.added("other", "13");
+            return read(id);
+        });
+        cache.get("other", this::read);
+        assertEquals(3, reads.get());
+    }
+}
@@ -0,0 +1,25 @@
+package neoflix.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FullTextTest {
+
+    @Test
+    void everyWordIsAPrefix() {
+        assertEquals("tom* AND ha*", FullText.prefixQuery(" tom  ha "));
+    }
+
+    @Test
+    void specialCharactersAreEscaped() {
+        assertEquals("o'neil* AND ac\\/dc*", FullText.prefixQuery("o'neil ac/dc"));
+        assertEquals("\\(500\\)* AND days*", FullText.prefixQuery("(500) days"));
+    }
+
+    @Test
+    void blankInputIsNoSearch() {
+        assertNull(FullText.prefixQuery(null));
+        assertNull(FullText.prefixQuery("   "));
+    }
+}
@@ -0,0 +1,68 @@
+package neoflix.services;
+
+import neoflix.metrics.PrometheusText;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenreCatalogTest {
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private final Genres genres = new Genres() {
+        @Override
+        public List<Map<String, Object>> all() {
+            reads.incrementAndGet();
+            return List.of(Map.of("name", "Drama", "movie", 42, "poster", "drama.jpg"),
+                    Map.of("name", "Film-Noir", "movie", 3));
+        }
+
+        @Override
+        public Map<String, Object> find(String name) {
+            throw new AssertionError("genres are found in the snapshot");
+        }
+    };
+
+    @Test
+    void doesNotReadUntilUsed() {
+        var catalog = new GenreCatalog(genres, 300);
+        catalog.start();
+        assertEquals(0, reads.get());
+        assertEquals("Drama", catalog.find("Drama").get("name"));
+        catalog.all();
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    void findsGenresInTheSnapshotOnly() {
+        var catalog = new GenreCatalog(genres, 0);
+        assertEquals(Map.of("name", "Drama", "movies", 42, "poster", "drama.jpg"), catalog.find("Drama"));
+        // no poster to show, like find() on the database
+        assertThrows(NoSuchRecordException.class, () -> catalog.find("Film-Noir"));
+        assertThrows(NoSuchRecordException.class, () -> catalog.find("Unknown"));
+        assertThrows(NoSuchRecordException.class, () -> catalog.snapshot().find("Unknown"));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    void exportsAgeAndRefreshTime() {
+        var catalog = new GenreCatalog(genres, 0);
+        var out = new PrometheusText();
+        catalog.collect(out);
+        assertFalse(out.toString().contains("neoflix_genre_catalog_age_seconds"));
+        assertTrue(out.toString().contains("neoflix_genre_catalog_refresh_seconds_count 0\n"));
+
+        catalog.refresh();
+        catalog.refresh();
+        out = new PrometheusText();
+        catalog.collect(out);
+        assertTrue(out.toString().contains("neoflix_genre_catalog_age_seconds "));
+        assertTrue(out.toString().contains("neoflix_genre_catalog_refresh_seconds_count 2\n"));
+        assertTrue(out.toString().contains("neoflix_genre_catalog_refresh_failures_total 0\n"));
+    }
+}
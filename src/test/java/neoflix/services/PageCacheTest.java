@@ -0,0 +1,69 @@
+package neoflix.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private List<Map<String, Object>> read() {
+        reads.incrementAndGet();
+        return List.of(Map.of("tmdbId", "680", "favorite", false));
+    }
+
+    @Test
+    void servesPagesUntilTheyExpire() {
+        var cache = new PageCache(10, 1_000, now::get);
+        var first = cache.get("MovieService.all", List.of("title", 0), this::read);
+        assertSame(first, cache.get("MovieService.all", List.of("title", 0), this::read));
+        assertEquals(1, reads.get());
+
+        now.addAndGet(1_000);
+        cache.get("MovieService.all", List.of("title", 0), this::read);
+        assertEquals(2, reads.get());
+        assertEquals(1, cache.hits("MovieService.all"));
+        assertEquals(2, cache.misses("MovieService.all"));
+    }
+
+    @Test
+    void keysIncludeRouteAndArguments() {
+        var cache = new PageCache(10, 1_000, now::get);
+        cache.get("MovieService.all", List.of("title", 0), this::read);
+        cache.get("MovieService.all", List.of("title", 6), this::read);
+        cache.get("MovieService.byGenre", List.of("title", 0), this::read);
+        assertEquals(3, reads.get());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPage() {
+        var cache = new PageCache(2, 1_000, now::get);
+        cache.get("MovieService.all", List.of(0), this::read);
+        cache.get("MovieService.all", List.of(6), this::read);
+        cache.get("MovieService.all", List.of(0), this::read);
+        cache.get("MovieService.all", List.of(12), this::read);
+        assertEquals(2, cache.size());
+        // page 6 was evicted, page 0 is still cached
+        cache.get("MovieService.all", List.of(0), this::read);
+        assertEquals(3, reads.get());
+        cache.get("MovieService.all", List.of(6), this::read);
+        assertEquals(4, reads.get());
+    }
+
+    @Test
+    void sizeZeroDisablesTheCache() {
+        var cache = new PageCache(0, 1_000, now::get);
+        cache.get("MovieService.all", List.of(0), this::read);
+        cache.get("MovieService.all", List.of(0), this::read);
+        assertEquals(2, reads.get());
+        assertEquals(0, cache.size());
+    }
+}
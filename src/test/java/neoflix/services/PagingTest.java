@@ -0,0 +1,18 @@
+package neoflix.services;
+
+import neoflix.Params;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PagingTest {
+
+    @Test
+    void cursorPredicateBoundsTheSortKey() {
+        assertEquals("AND m.title >= $afterKey AND (m.title > $afterKey OR m.tmdbId > $afterId)",
+                Paging.after("m.title", "m.tmdbId", Params.Order.ASC, true));
+        assertEquals("AND m.imdbRating <= $afterKey AND (m.imdbRating < $afterKey OR m.tmdbId < $afterId)",
+                Paging.after("m.imdbRating", "m.tmdbId", Params.Order.DESC, true));
+        assertEquals("", Paging.after("m.title", "m.tmdbId", Params.Order.ASC, false));
+    }
+}
@@ -0,0 +1,184 @@
+package neoflix.services;
+
+import neoflix.metrics.PrometheusText;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private List<Map<String, Object>> read() {
+        reads.incrementAndGet();
+        return List.of(Map.of("tmdbId", "680", "title", "Pulp Fiction"));
+    }
+
+    private Object read(QueryCache cache, String name, Object... arguments) {
+        return cache.read(name, Arrays.asList(arguments), List.of(QueryCache.user("fan")), this::read);
+    }
+
+    @Test
+    void servesResultsUntilTheyExpire() {
+        var cache = new QueryCache(1 << 20, 1_000, Map.of(), now::get);
+        var first = read(cache, "MovieService.findById", "680", null);
+        assertSame(first, read(cache, "MovieService.findById", "680", null));
+        assertEquals(1, reads.get());
+
+        now.addAndGet(1_000);
+        read(cache, "MovieService.findById", "680", null);
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    void ttlsArePerQuery() {
+        var cache = new QueryCache(1 << 20, 1_000, QueryCache.ttls("PeopleService.findById=10, RatingService.forMovie=0"), now::get);
+        read(cache, "RatingService.forMovie", "680");
+        read(cache, "RatingService.forMovie", "680");
+        assertEquals(2, reads.get());
+
+        read(cache, "PeopleService.findById", "1");
+        now.addAndGet(5_000);
+        read(cache, "PeopleService.findById", "1");
+        assertEquals(3, reads.get());
+    }
+
+    @Test
+    void writesInvalidateTaggedResults() {
+        var cache = new QueryCache(1 << 20, 60_000, Map.of(), now::get);
+        cache.read("FavoriteService.all", List.of("fan"), List.of(QueryCache.user("fan")), this::read);
+        cache.read("RatingService.forMovie", List.of("680"), List.of(QueryCache.movie("680")), this::read);
+        cache.read("PeopleService.findById", List.of("1"), List.of(), this::read);
+        assertEquals(3, reads.get());
+
+        cache.invalidate(QueryCache.user("fan"), QueryCache.movie("680"));
+        cache.read("FavoriteService.all", List.of("fan"), List.of(QueryCache.user("fan")), this::read);
+        cache.read("RatingService.forMovie", List.of("680"), List.of(QueryCache.movie("680")), this::read);
+        cache.read("PeopleService.findById", List.of("1"), List.of(), this::read);
+        assertEquals(5, reads.get());
+    }
+
+    @Test
+    void readRacingWithAWriteIsNotCached() {
+        var cache = new QueryCache(1 << 20, 60_000, Map.of(), now::get);
+        cache.read("FavoriteService.all", List.of("fan"), List.of(QueryCache.user("fan")), () -> {
+            // the favorite is added while the old list is read
+            cache.invalidate(QueryCache.user("fan"));
+            return read();
+        });
+        cache.read("FavoriteService.all", List.of("fan"), List.of(QueryCache.user("fan")), this::read);
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    void sizeIsBoundedInBytes() {
+        long entry = 160 + QueryCache.estimateBytes(List.of(0)) + QueryCache.estimateBytes(read());
+        reads.set(0);
+        var cache = new QueryCache(entry * 10, 60_000, Map.of(), now::get);
+        for (int i = 0; i < 100; i++) {
+            read(cache, "MovieService.all", i);
+        }
+        assertTrue(cache.bytes() <= entry * 10);
+        assertTrue(cache.bytes() > 0);
+    }
+
+    @Test
+    void frequentResultsAreNotEvictedByOneOffReads() {
+        long entry = 160 + QueryCache.estimateBytes(List.of(0)) + QueryCache.estimateBytes(read());
+        var cache = new QueryCache(entry * 10, 60_000, Map.of(), now::get);
+        for (int i = 0; i < 5; i++) {
+            read(cache, "MovieService.all", "popular");
+        }
+        // a crawler walking every page once
+        for (int i = 0; i < 100; i++) {
+            read(cache, "MovieService.all", i);
+        }
+        reads.set(0);
+        read(cache, "MovieService.all", "popular");
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    void rejectedCandidateEvictsNothing() {
+        var movie = read().get(0);
+        reads.set(0);
+        long small = 160 + QueryCache.estimateBytes(List.of("cold")) + QueryCache.estimateBytes(List.of(movie));
+        long large = 160 + QueryCache.estimateBytes(List.of("large")) + QueryCache.estimateBytes(List.of(movie, movie));
+        // the main area, 99% of the capacity, holds two small entries and the large one only
+        // fits once both are evicted
+        var cache = new QueryCache((long) ((1.5 * small + 0.5 * large) / 0.99), 60_000, Map.of(), now::get);
+        read(cache, "MovieService.all", "cold");
+        for (int i = 0; i < 5; i++) {
+            read(cache, "MovieService.all", "hot");
+        }
+        // read more often than the cold entry, but less often than the hot one
+        for (int i = 0; i < 3; i++) {
+            cache.read("MovieService.all", List.of("large"), List.of(), () -> List.of(movie, movie));
+        }
+        reads.set(0);
+        read(cache, "MovieService.all", "cold");
+        read(cache, "MovieService.all", "hot");
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    void concurrentHitsAreCountedWithoutLosingEntries() throws Exception {
+        var cache = new QueryCache(1 << 20, 60_000, Map.of(), now::get);
+        read(cache, "MovieService.all", 0);
+        var pool = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        read(cache, "MovieService.all", 0);
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, reads.get());
+        var out = new PrometheusText();
+        cache.collect(out);
+        assertTrue(out.toString().contains("neoflix_query_cache_requests_total{query=\"MovieService.all\",result=\"hit\"} 80000"));
+    }
+
+    @Test
+    void exportsStatsPerQuery() {
+        var cache = new QueryCache(1 << 20, 60_000, Map.of(), now::get);
+        read(cache, "MovieService.all", 0);
+        read(cache, "MovieService.all", 0);
+        cache.invalidate(QueryCache.user("fan"));
+        var out = new PrometheusText();
+        cache.collect(out);
+        var text = out.toString();
+        assertTrue(text.contains("neoflix_query_cache_requests_total{query=\"MovieService.all\",result=\"hit\"} 1"), text);
+        assertTrue(text.contains("neoflix_query_cache_hit_ratio{query=\"MovieService.all\"} 0.5"), text);
+        assertTrue(text.contains("neoflix_query_cache_evictions_total{query=\"MovieService.all\",reason=\"invalidated\"} 1"), text);
+        assertTrue(text.contains("neoflix_query_cache_bytes{query=\"MovieService.all\"} 0"), text);
+    }
+
+    @Test
+    void zeroBytesDisablesTheCache() {
+        var cache = new QueryCache(0, 60_000, Map.of(), now::get);
+        read(cache, "MovieService.all", 0);
+        read(cache, "MovieService.all", 0);
+        assertEquals(2, reads.get());
+        assertEquals(0, cache.bytes());
+    }
+}
@@ -0,0 +1,22 @@
+package neoflix.services;
+
+import neoflix.Params;
+import neoflix.metrics.PrometheusText;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryRegistryTest {
+
+    @Test
+    void exportsExecutionsPerTemplate() {
+        var family = QueryRegistry.instance().registerMovieList("QueryRegistryTest.list", """
+                MATCH (m:Movie) WHERE %1$s IS NOT NULL %2$s RETURN m %3$s %4$s LIMIT $limit
+                """);
+        var template = family.template(new Params(null, Params.Sort.title, Params.Order.DESC, 6, 0));
+        var out = new PrometheusText();
+        QueryRegistry.instance().collect(out);
+        assertTrue(out.toString().contains(
+                "neoflix_query_template_executions_total{template=\"" + template.name() + "\"} 0\n"), out.toString());
+    }
+}
@@ -0,0 +1,223 @@
+package neoflix.services;
+
+import neoflix.Params;
+import neoflix.metrics.PrometheusText;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void concurrentCallsShareOneRead() throws Exception {
+        var flights = new SingleFlight(true);
+        var reads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var results = call(flights, "same", () -> {
+            reads.incrementAndGet();
+            await(release);
+            return new Object();
+        }, release);
+
+        assertEquals(1, reads.get());
+        for (var result : results) {
+            assertSame(results.get(0), result);
+        }
+        assertEquals(1, flights.executions("test"));
+        assertEquals(CALLERS - 1, flights.coalesced("test"));
+        assertEquals(0, flights.inFlight());
+        var out = new PrometheusText();
+        flights.collect(out);
+        assertTrue(out.toString().contains("neoflix_single_flight_coalesced_total{operation=\"test\"} " + (CALLERS - 1)));
+        // keys carry request parameters, they are not exported
+        assertFalse(out.toString().contains("[same]"));
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        var flights = new SingleFlight(true);
+        var release = new CountDownLatch(1);
+        var pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            var futures = submit(pool, flights, "failing", () -> {
+                await(release);
+                throw new IllegalStateException("no database");
+            });
+            waitForWaiters(flights);
+            release.countDown();
+            for (var future : futures) {
+                var e = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void laterCallsReadAgain() {
+        var flights = new SingleFlight(true);
+        var reads = new AtomicInteger();
+        flights.run("test", List.of("key"), reads::incrementAndGet);
+        flights.run("test", List.of("key"), reads::incrementAndGet);
+        assertEquals(2, reads.get());
+        assertEquals(0, flights.coalesced("test"));
+    }
+
+    @Test
+    void favoritesAreSetPerUserAfterCoalescing() {
+        var movie = new HashMap<String, Object>();
+        movie.put("tmdbId", "680");
+        movie.put("favorite", false);
+        var reads = new ArrayList<String>();
+        var movies = new CoalescingMovies(new MoviesStub(movie, reads), new FavoritesStub(), new SingleFlight(true),
+                new PageCache(0, 0, System::currentTimeMillis));
+
+        assertEquals(true, movies.findById("680", "fan").get("favorite"));
+        assertEquals(false, movies.findById("680", "critic").get("favorite"));
+        assertEquals(false, movies.findById("680", null).get("favorite"));
+        assertEquals(true, movies.getSimilarMovies("1", new Params(null, null, Params.Order.ASC, 6, 0), "fan")
+                .get(0).get("favorite"));
+        // the shared read never sees the user
+        reads.forEach(userId -> assertNull(userId));
+        // and the shared row is not changed by the overlay
+        assertEquals(false, movie.get("favorite"));
+    }
+
+    @Test
+    void pagesAreCachedWithoutSingleFlight() {
+        var movie = Map.<String, Object>of("tmdbId", "680", "favorite", false);
+        var reads = new ArrayList<String>();
+        var flights = new SingleFlight(false);
+        var movies = new CoalescingMovies(new MoviesStub(movie, reads), new FavoritesStub(), flights,
+                new PageCache(10, 60_000, System::currentTimeMillis));
+        var params = new Params(null, null, Params.Order.ASC, 6, 0);
+
+        assertEquals(true, movies.getSimilarMovies("1", params, "fan").get(0).get("favorite"));
+        assertEquals(false, movies.getSimilarMovies("1", params, "critic").get(0).get("favorite"));
+        assertEquals(1, reads.size());
+        assertEquals(0, flights.executions("MovieService.getSimilarMovies"));
+
+        // the listing ignores `q`, it doesn't make another page
+        movies.getSimilarMovies("1", new Params("heat", null, Params.Order.ASC, 6, 0), null);
+        assertEquals(1, reads.size());
+    }
+
+    private List<Object> call(SingleFlight flights, String key, Supplier<Object> read,
+                              CountDownLatch release) throws Exception {
+        var pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            var futures = submit(pool, flights, key, read);
+            waitForWaiters(flights);
+            release.countDown();
+            var results = new ArrayList<>();
+            for (var future : futures) {
+                results.add(future.get(5, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static List<Future<Object>> submit(ExecutorService pool, SingleFlight flights, String key,
+                                               Supplier<Object> read) {
+        var futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(pool.submit(() -> flights.run("test", List.of(key), read)));
+        }
+        return futures;
+    }
+
+    private static void waitForWaiters(SingleFlight flights) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flights.coalesced("test") < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record FavoritesStub() implements Favorites {
+        @Override
+        public Set<String> ids(String userId) {
+            return "fan".equals(userId) ? Set.of("680") : Set.of();
+        }
+
+        @Override
+        public List<Map<String, Object>> all(String userId, Params params) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, Object> add(String userId, String movieId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, Object> remove(String userId, String movieId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private record MoviesStub(Map<String, Object> movie, List<String> reads) implements Movies {
+        @Override
+        public Map<String, Object> findById(String id, String userId) {
+            reads.add(userId);
+            return Collections.unmodifiableMap(movie);
+        }
+
+        @Override
+        public List<Map<String, Object>> getSimilarMovies(String id, Params params, String userId) {
+            reads.add(userId);
+            return List.of(Collections.unmodifiableMap(movie));
+        }
+
+        @Override
+        public List<Map<String, Object>> all(Params params, String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Map<String, Object>> search(Params params, String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Map<String, Object>> byGenre(String name, Params params, String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Map<String, Object>> getForActor(String actorId, Params params, String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Map<String, Object>> getForDirector(String directorId, Params params, String userId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
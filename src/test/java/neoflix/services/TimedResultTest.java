@@ -0,0 +1,116 @@
+package neoflix.services;
+
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalRecord;
+import org.neo4j.driver.summary.QueryType;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimedResultTest {
+
+    @Test
+    void recordsRowsAndServerTimesOnceTheResultIsRead() {
+        var log = new QueryLog(0, false);
+        var execution = log.new Execution("MovieService.all", "MovieService.all[title ASC]", "RETURN 1", Values.value(1));
+        var result = new TimedResult(new ListResult(3), execution);
+
+        assertEquals(3, result.list(row -> row.get("n").asInt()).size());
+        result.consume();
+
+        var stats = log.stats("MovieService.all");
+        assertEquals(1, stats.wall.count());
+        assertEquals(3, stats.rows.sum());
+        assertEquals(12, stats.firstRecordMillis.sum());
+        assertEquals(34, stats.consumeMillis.sum());
+    }
+
+    @Test
+    void recordsSingleRecords() {
+        var log = new QueryLog(0, false);
+        var execution = log.new Execution("GenreService.find", "GenreService.find", "RETURN 1", Values.value(1));
+
+        new TimedResult(new ListResult(1), execution).single();
+
+        assertEquals(1, log.stats("GenreService.find").rows.sum());
+    }
+
+    @Test
+    void slowQueryLogMasksCredentials() {
+        var logged = QueryLog.redacted(Values.parameters("email", "graph.acy@neo4j.com", "encrypted", "$2a$10$hash",
+                "name", "Graph Acy"));
+        assertFalse(logged.contains("graph.acy@neo4j.com"), logged);
+        assertFalse(logged.contains("$2a$10$hash"), logged);
+        assertTrue(logged.contains("Graph Acy"), logged);
+    }
+
+    private static ResultSummary summary() {
+        return (ResultSummary) Proxy.newProxyInstance(ResultSummary.class.getClassLoader(),
+                new Class<?>[]{ResultSummary.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "resultAvailableAfter" -> 12L;
+                    case "resultConsumedAfter" -> 34L;
+                    case "queryType" -> QueryType.READ_ONLY;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static class ListResult implements Result {
+        private final Iterator<Record> records;
+
+        ListResult(int rows) {
+            this.records = Stream.iterate(0, i -> i + 1).limit(rows)
+                    .<Record>map(i -> new InternalRecord(List.of("n"), new Value[]{Values.value(i)}))
+                    .iterator();
+        }
+
+        public List<String> keys() {
+            return List.of("n");
+        }
+
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        public Record next() {
+            return records.next();
+        }
+
+        public Record single() {
+            var record = next();
+            if (hasNext()) throw new IllegalStateException();
+            return record;
+        }
+
+        public Record peek() {
+            throw new UnsupportedOperationException();
+        }
+
+        public Stream<Record> stream() {
+            throw new UnsupportedOperationException();
+        }
+
+        public List<Record> list() {
+            throw new UnsupportedOperationException();
+        }
+
+        public <T> List<T> list(Function<Record, T> mapFunction) {
+            throw new UnsupportedOperationException();
+        }
+
+        public ResultSummary consume() {
+            return summary();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package neoflix.services.fixture;
+
+import neoflix.FakeRequests;
+import neoflix.Params;
+import neoflix.ValidationException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixtureServicesTest {
+
+    private static FixtureData data;
+
+    @BeforeAll
+    static void load() {
+        System.setProperty("SALT_ROUNDS", "4");
+        data = FixtureData.load();
+    }
+
+    @Test
+    void cursorPagesMatchSkipPages() {
+        var movies = new MovieServiceFixture(data);
+        var bySkip = movies.all(new Params(null, Params.Sort.imdbRating, Params.Order.DESC, 20, 0), null);
+        var byCursor = new ArrayList<Map<String, Object>>();
+        var params = new Params(null, Params.Sort.imdbRating, Params.Order.DESC, 5, 0);
+        while (byCursor.size() < 20) {
+            var page = movies.all(params, null);
+            byCursor.addAll(page);
+            var cursor = params.nextCursor(page, "imdbRating", "tmdbId");
+            if (cursor == null) break;
+            params = new Params(null, Params.Sort.imdbRating, Params.Order.DESC, 5, 0, Params.Cursor.decode(cursor));
+        }
+        assertEquals(ids(bySkip), ids(byCursor));
+        for (int i = 1; i < bySkip.size(); i++) {
+            assertTrue(((Number) bySkip.get(i - 1).get("imdbRating")).doubleValue()
+                    >= ((Number) bySkip.get(i).get("imdbRating")).doubleValue());
+        }
+    }
+
+    @Test
+    void listsAreIndexedByGenreAndPerson() {
+        var movies = new MovieServiceFixture(data);
+        var params = new Params(null, Params.Sort.title, Params.Order.ASC, 100, 0);
+        assertFalse(movies.byGenre("Comedy", params, null).isEmpty());
+        assertFalse(movies.getForActor("31", params, null).isEmpty());
+        assertFalse(movies.getForDirector("1776", params, null).isEmpty());
+        assertTrue(movies.byGenre("Unknown", params, null).isEmpty());
+        assertThrows(NoSuchRecordException.class, () -> movies.findById("unknown", null));
+    }
+
+    @Test
+    void favoritesAreFlagged() {
+        var movies = new MovieServiceFixture(data);
+        var favorites = new FavoriteServiceFixture(data);
+        var params = new Params(null, Params.Sort.title, Params.Order.ASC, 6, 0);
+
+        assertEquals(true, favorites.add("1", "680").get("favorite"));
+        assertEquals(true, movies.findById("680", "1").get("favorite"));
+        assertEquals(List.of("680"), ids(favorites.all("1", params)));
+
+        assertEquals(false, favorites.remove("1", "680").get("favorite"));
+        assertEquals(false, movies.findById("680", "1").get("favorite"));
+        assertThrows(ValidationException.class, () -> favorites.remove("1", "680"));
+    }
+
+    @Test
+    void searchMatchesWordPrefixes() {
+        var people = new PeopleServiceFixture(data);
+        var params = new Params("al pac", Params.Sort.score, Params.Order.DESC, 6, 0);
+        var found = people.all(params);
+        assertEquals("Al Pacino", found.get(0).get("name"));
+        assertEquals(Params.Sort.score, people.sortOf(params));
+    }
+
+    @Test
+    void movieSearchRanksBestMatchesFirstByDefault() {
+        var movies = new MovieServiceFixture(data);
+        var params = Params.parse(FakeRequests.withQuery(Map.of("q", "godfather", "limit", "20")), Params.MOVIE_SORT, true);
+        assertEquals(Params.Order.DESC, params.order());
+        var found = movies.search(params, null);
+        assertTrue(((String) found.get(0).get("title")).startsWith("Godfather"));
+        for (int i = 1; i < found.size(); i++) {
+            assertTrue((Double) found.get(i - 1).get("score") >= (Double) found.get(i).get("score"));
+        }
+    }
+
+    @Test
+    void peopleArePagedByBornAndMovieCount() {
+        var people = new PeopleServiceFixture(data);
+        for (var sort : List.of(Params.Sort.born, Params.Sort.movieCount)) {
+            var first = new Params(null, sort, Params.Order.DESC, 3, 0);
+            assertEquals(sort, people.sortOf(first));
+            var bySkip = people.all(new Params(null, sort, Params.Order.DESC, 6, 0));
+            var page = people.all(first);
+            var cursor = Params.Cursor.decode(first.nextCursor(page, sort.name(), "tmdbId"));
+            page = new ArrayList<>(page);
+            page.addAll(people.all(new Params(null, sort, Params.Order.DESC, 3, 0, cursor)));
+            assertEquals(ids(bySkip), ids(page));
+            assertTrue(bySkip.stream().allMatch(person -> person.get(sort.name()) != null));
+        }
+        // movies are only counted when sorting by their count
+        assertNull(people.all(new Params(null, Params.Sort.name, Params.Order.ASC, 3, 0)).get(0).get("movieCount"));
+    }
+
+    @Test
+    void fixtureUserCanLogIn() {
+        var accounts = new AuthServiceFixture(data, "secret");
+        var user = accounts.authenticate("graphacademy@neo4j.com", "letmein");
+        assertEquals("1", user.get("userId"));
+        assertNotNull(user.get("token"));
+        assertThrows(ValidationException.class, () -> accounts.authenticate("graphacademy@neo4j.com", "wrong"));
+    }
+
+    private static List<Object> ids(List<Map<String, Object>> movies) {
+        return movies.stream().map(movie -> movie.get("tmdbId")).toList();
+    }
+}